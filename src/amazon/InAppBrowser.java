@@ -30,7 +30,6 @@ import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.text.InputType;
-import android.util.Log;
 import android.util.TypedValue;
 import android.view.Gravity;
 import android.view.KeyEvent;
@@ -56,9 +55,9 @@ import android.widget.RelativeLayout;
 import org.apache.cordova.CallbackContext;
 import org.apache.cordova.Config;
 import org.apache.cordova.CordovaArgs;
+import org.apache.cordova.CordovaInterface;
 import org.apache.cordova.CordovaPlugin;
 import org.apache.cordova.CordovaWebView;
-import org.apache.cordova.LOG;
 import org.apache.cordova.PluginResult;
 import org.apache.cordova.CordovaActivity;
 import org.json.JSONException;
@@ -72,6 +71,7 @@ public class InAppBrowser extends CordovaPlugin {
 
     private static final String NULL = "null";
     protected static final String LOG_TAG = "InAppBrowser";
+    private static final String LOG_LEVEL_PREFERENCE = "InAppBrowserLogLevel";
     private static final String SELF = "_self";
     private static final String SYSTEM = "_system";
     // private static final String BLANK = "_blank";
@@ -95,6 +95,15 @@ public class InAppBrowser extends CordovaPlugin {
     private boolean clearAllCache= false;
     private boolean clearSessionCache=false;
 
+    @Override
+    public void initialize(CordovaInterface cordova, CordovaWebView webView) {
+        super.initialize(cordova, webView);
+        Bundle appSettings = cordova.getActivity().getIntent().getExtras();
+        if (appSettings != null && appSettings.containsKey(LOG_LEVEL_PREFERENCE)) {
+            InAppBrowserLog.setLevel(appSettings.getString(LOG_LEVEL_PREFERENCE));
+        }
+    }
+
     /**
      * Executes the request and returns PluginResult.
      *
@@ -114,7 +123,7 @@ public class InAppBrowser extends CordovaPlugin {
             final String target = t;
             final HashMap<String, Boolean> features = parseFeature(args.optString(2));
             
-            Log.d(LOG_TAG, "target = " + target);
+            InAppBrowserLog.d(LOG_TAG, "target = %s", target);
             
             this.cordova.getActivity().runOnUiThread(new Runnable() {
                 @Override
@@ -122,39 +131,39 @@ public class InAppBrowser extends CordovaPlugin {
                     String result = "";
                     // SELF
                     if (SELF.equals(target)) {
-                        Log.d(LOG_TAG, "in self");
+                        InAppBrowserLog.d(LOG_TAG, "in self");
                         // load in webview
                         if (url.startsWith("file://") || url.startsWith("javascript:") 
                                 || Config.isUrlWhiteListed(url)) {
-                            Log.d(LOG_TAG, "loading in webview");
+                            InAppBrowserLog.d(LOG_TAG, "loading in webview");
                             webView.loadUrl(url);
                         }
                         //Load the dialer
                         else if (url.startsWith(AmazonWebView.SCHEME_TEL))
                         {
                             try {
-                                Log.d(LOG_TAG, "loading in dialer");
+                                InAppBrowserLog.d(LOG_TAG, "loading in dialer");
                                 Intent intent = new Intent(Intent.ACTION_DIAL);
                                 intent.setData(Uri.parse(url));
                                 cordova.getActivity().startActivity(intent);
                             } catch (android.content.ActivityNotFoundException e) {
-                                LOG.e(LOG_TAG, "Error dialing " + url + ": " + e.toString());
+                                InAppBrowserLog.e(LOG_TAG, "Error dialing %s: %s", url, e);
                             }
                         }
                         // load in InAppBrowser
                         else {
-                            Log.d(LOG_TAG, "loading in InAppBrowser");
+                            InAppBrowserLog.d(LOG_TAG, "loading in InAppBrowser");
                             result = showWebPage(url, features);
                         }
                     }
                     // SYSTEM
                     else if (SYSTEM.equals(target)) {
-                        Log.d(LOG_TAG, "in system");
+                        InAppBrowserLog.d(LOG_TAG, "in system");
                         result = openExternal(url);
                     }
                     // BLANK - or anything else
                     else {
-                        Log.d(LOG_TAG, "in blank");
+                        InAppBrowserLog.d(LOG_TAG, "in blank");
                         result = showWebPage(url, features);
                     }
     
@@ -323,7 +332,7 @@ public class InAppBrowser extends CordovaPlugin {
             this.cordova.getActivity().startActivity(intent);
             return "";
         } catch (android.content.ActivityNotFoundException e) {
-            Log.d(LOG_TAG, "InAppBrowser: Error loading url "+url+":"+ e.toString());
+            InAppBrowserLog.d(LOG_TAG, "Error loading url %s: %s", url, e);
             return e.toString();
         }
     }
@@ -361,7 +370,7 @@ public class InAppBrowser extends CordovaPlugin {
             obj.put("type", EXIT_EVENT);
             sendUpdate(obj, false);
         } catch (JSONException ex) {
-            Log.d(LOG_TAG, "Should never happen");
+            InAppBrowserLog.d(LOG_TAG, "Should never happen");
         }
     }
     /**
@@ -750,7 +759,7 @@ public class InAppBrowser extends CordovaPlugin {
                     intent.setData(Uri.parse(url));
                     cordova.getActivity().startActivity(intent);
                 } catch (android.content.ActivityNotFoundException e) {
-                    LOG.e(LOG_TAG, "Error dialing " + url + ": " + e.toString());
+                    InAppBrowserLog.e(LOG_TAG, "Error dialing %s: %s", url, e);
                 }
             }
 
@@ -760,7 +769,7 @@ public class InAppBrowser extends CordovaPlugin {
                     intent.setData(Uri.parse(url));
                     cordova.getActivity().startActivity(intent);
                 } catch (android.content.ActivityNotFoundException e) {
-                    LOG.e(LOG_TAG, "Error with " + url + ": " + e.toString());
+                    InAppBrowserLog.e(LOG_TAG, "Error with %s: %s", url, e);
                 }
             }
             // If sms:5551212?body=This is the message
@@ -791,7 +800,7 @@ public class InAppBrowser extends CordovaPlugin {
                     intent.setType("vnd.android-dir/mms-sms");
                     cordova.getActivity().startActivity(intent);
                 } catch (android.content.ActivityNotFoundException e) {
-                    LOG.e(LOG_TAG, "Error sending sms " + url + ":" + e.toString());
+                    InAppBrowserLog.e(LOG_TAG, "Error sending sms %s: %s", url, e);
                 }
             }
             else {
@@ -809,7 +818,7 @@ public class InAppBrowser extends CordovaPlugin {
     
                 sendUpdate(obj, true);
             } catch (JSONException ex) {
-                Log.d(LOG_TAG, "Should never happen");
+                InAppBrowserLog.d(LOG_TAG, "Should never happen");
             }
         }
         
@@ -823,7 +832,7 @@ public class InAppBrowser extends CordovaPlugin {
     
                 sendUpdate(obj, true);
             } catch (JSONException ex) {
-                Log.d(LOG_TAG, "Should never happen");
+                InAppBrowserLog.d(LOG_TAG, "Should never happen");
             }
         }
         
@@ -839,7 +848,7 @@ public class InAppBrowser extends CordovaPlugin {
     
                 sendUpdate(obj, true, PluginResult.Status.ERROR);
             } catch (JSONException ex) {
-                Log.d(LOG_TAG, "Should never happen");
+                InAppBrowserLog.d(LOG_TAG, "Should never happen");
             }
         }
     }
@@ -19,7 +19,6 @@
 package org.apache.cordova.inappbrowser;
 
 import org.apache.cordova.CordovaWebView;
-import org.apache.cordova.LOG;
 import org.apache.cordova.PluginResult;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -55,13 +54,13 @@ public class InAppChromeClient extends AmazonWebChromeClient {
     public void onExceededDatabaseQuota(String url, String databaseIdentifier, long currentQuota, long estimatedSize,
             long totalUsedQuota, AmazonWebStorage.QuotaUpdater quotaUpdater)
     {
-        LOG.d(LOG_TAG, "onExceededDatabaseQuota estimatedSize: %d  currentQuota: %d  totalUsedQuota: %d", estimatedSize, currentQuota, totalUsedQuota);
+        InAppBrowserLog.d(LOG_TAG, "onExceededDatabaseQuota estimatedSize: %d  currentQuota: %d  totalUsedQuota: %d", estimatedSize, currentQuota, totalUsedQuota);
 
         if (estimatedSize < MAX_QUOTA)
         {
             //increase for 1Mb
             long newQuota = estimatedSize;
-            LOG.d(LOG_TAG, "calling quotaUpdater.updateQuota newQuota: %d", newQuota);
+            InAppBrowserLog.d(LOG_TAG, "calling quotaUpdater.updateQuota newQuota: %d", newQuota);
             quotaUpdater.updateQuota(newQuota);
         }
         else
@@ -135,7 +134,7 @@ public class InAppChromeClient extends AmazonWebChromeClient {
             else
             {
                 // Anything else with a gap: prefix should get this message
-                LOG.w(LOG_TAG, "InAppBrowser does not support Cordova API calls: " + url + " " + defaultValue); 
+                InAppBrowserLog.w(LOG_TAG, "InAppBrowser does not support Cordova API calls: %s %s", url, defaultValue); 
                 result.cancel();
                 return true;
             }
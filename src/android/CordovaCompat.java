@@ -0,0 +1,212 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import android.app.Activity;
+import android.os.Bundle;
+
+import org.apache.cordova.Config;
+import org.apache.cordova.CordovaWebView;
+import org.apache.cordova.PluginManager;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Reflective access to Cordova APIs which differ between the 3.x and 4.x versions of
+ * cordova-android.
+ *
+ * Previously the Config class had a static method, isUrlWhitelisted(). That
+ * responsibility has been moved to the plugins, with an aggregating method in
+ * PluginManager. Likewise the PluginManager is reachable through a getter on newer
+ * versions and through a public field on older ones, and only newer versions give
+ * plugins their preferences directly.
+ *
+ * Each member is looked up once per process (or once per CordovaWebView class) and the
+ * result, including the fact that it does not exist, is remembered.
+ */
+public final class CordovaCompat {
+
+    /**
+     * The resolved members of one CordovaWebView implementation class.
+     */
+    private static final class WebViewMembers {
+        final Class<?> webViewClass;
+        final Method getPluginManager;
+        final Field pluginManager;
+
+        WebViewMembers(Class<?> webViewClass) {
+            this.webViewClass = webViewClass;
+            Method method = null;
+            Field field = null;
+            try {
+                method = webViewClass.getMethod("getPluginManager");
+            } catch (NoSuchMethodException e) {
+                try {
+                    field = webViewClass.getField("pluginManager");
+                } catch (NoSuchFieldException e2) {
+                }
+            }
+            this.getPluginManager = method;
+            this.pluginManager = field;
+        }
+    }
+
+    private static volatile boolean isUrlWhiteListedResolved = false;
+    private static volatile Method isUrlWhiteListed;
+    private static volatile boolean shouldAllowNavigationResolved = false;
+    private static volatile Method shouldAllowNavigation;
+    private static volatile WebViewMembers webViewMembers;
+
+    private CordovaCompat() {
+    }
+
+    /**
+     * Read a preference from config.xml. Every version copies the preferences into the
+     * extras of the activity's intent, lower cased on some versions and typed on some,
+     * so they are read from there.
+     *
+     * @param activity the Cordova activity
+     * @param name the name of the preference, matched case insensitively
+     * @return the value, or null if it is not set
+     */
+    private static Object getPreference(Activity activity, String name) {
+        Bundle extras = activity.getIntent() == null ? null : activity.getIntent().getExtras();
+        if (extras == null) {
+            return null;
+        }
+        Object value = extras.get(name);
+        if (value == null) {
+            for (String key : extras.keySet()) {
+                if (key.equalsIgnoreCase(name)) {
+                    return extras.get(key);
+                }
+            }
+        }
+        return value;
+    }
+
+    public static String getStringPreference(Activity activity, String name, String defaultValue) {
+        Object value = getPreference(activity, name);
+        return value == null ? defaultValue : value.toString();
+    }
+
+    public static int getIntegerPreference(Activity activity, String name, int defaultValue) {
+        Object value = getPreference(activity, name);
+        if (value instanceof Number) {
+            return ((Number)value).intValue();
+        }
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBooleanPreference(Activity activity, String name, boolean defaultValue) {
+        Object value = getPreference(activity, name);
+        if (value instanceof Boolean) {
+            return (Boolean)value;
+        }
+        return value == null ? defaultValue : "true".equalsIgnoreCase(value.toString().trim());
+    }
+
+    /**
+     * Ask the 3.x Config whitelist whether a url may be loaded.
+     *
+     * @param url the url to check
+     * @return the whitelist's answer, or null if this version of Cordova has no such whitelist
+     */
+    public static Boolean isUrlWhiteListed(String url) {
+        if (!isUrlWhiteListedResolved) {
+            try {
+                isUrlWhiteListed = Config.class.getMethod("isUrlWhiteListed", String.class);
+            } catch (NoSuchMethodException e) {
+            }
+            isUrlWhiteListedResolved = true;
+        }
+        Method method = isUrlWhiteListed;
+        if (method == null) {
+            return null;
+        }
+        try {
+            return (Boolean)method.invoke(null, url);
+        } catch (IllegalAccessException e) {
+        } catch (InvocationTargetException e) {
+        }
+        return null;
+    }
+
+    /**
+     * Get the PluginManager of a CordovaWebView.
+     *
+     * @param webView the Cordova WebView
+     * @return its plugin manager, or null if it cannot be reached
+     */
+    public static PluginManager getPluginManager(CordovaWebView webView) {
+        WebViewMembers members = webViewMembers;
+        if (members == null || members.webViewClass != webView.getClass()) {
+            members = new WebViewMembers(webView.getClass());
+            webViewMembers = members;
+        }
+        try {
+            if (members.getPluginManager != null) {
+                return (PluginManager)members.getPluginManager.invoke(webView);
+            }
+            if (members.pluginManager != null) {
+                return (PluginManager)members.pluginManager.get(webView);
+            }
+        } catch (IllegalAccessException e) {
+        } catch (InvocationTargetException e) {
+        }
+        return null;
+    }
+
+    /**
+     * Ask the 4.x plugins whether the Cordova WebView may navigate to a url.
+     *
+     * @param webView the Cordova WebView
+     * @param url the url to check
+     * @return the plugins' answer, or null if this version of Cordova cannot answer
+     */
+    public static Boolean shouldAllowNavigation(CordovaWebView webView, String url) {
+        PluginManager pm = getPluginManager(webView);
+        if (pm == null) {
+            return null;
+        }
+        if (!shouldAllowNavigationResolved) {
+            try {
+                shouldAllowNavigation = PluginManager.class.getMethod("shouldAllowNavigation", String.class);
+            } catch (NoSuchMethodException e) {
+            }
+            shouldAllowNavigationResolved = true;
+        }
+        Method method = shouldAllowNavigation;
+        if (method == null) {
+            return null;
+        }
+        try {
+            return (Boolean)method.invoke(pm, url);
+        } catch (IllegalAccessException e) {
+        } catch (InvocationTargetException e) {
+        }
+        return null;
+    }
+}
@@ -18,30 +18,42 @@
 */
 package org.apache.cordova.inappbrowser;
 
+import android.Manifest;
 import android.annotation.SuppressLint;
+import android.annotation.TargetApi;
+import android.app.Activity;
 import org.apache.cordova.inappbrowser.InAppBrowserDialog;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.Intent;
+import android.content.pm.PackageManager;
 import android.provider.Browser;
-import android.content.res.Resources;
+import android.content.res.Configuration;
 import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
+import android.net.ConnectivityManager;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
 import android.net.Uri;
 import android.os.Build;
-import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.InputType;
-import android.util.Log;
-import android.util.TypedValue;
 import android.view.Gravity;
 import android.view.KeyEvent;
 import android.view.View;
+import android.view.ViewGroup;
 import android.view.Window;
 import android.view.WindowManager;
 import android.view.WindowManager.LayoutParams;
 import android.view.inputmethod.EditorInfo;
 import android.view.inputmethod.InputMethodManager;
 import android.webkit.CookieManager;
+import android.webkit.CookieSyncManager;
 import android.webkit.HttpAuthHandler;
+import android.webkit.ValueCallback;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
@@ -51,22 +63,27 @@ import android.widget.LinearLayout;
 import android.widget.RelativeLayout;
 
 import org.apache.cordova.CallbackContext;
-import org.apache.cordova.Config;
 import org.apache.cordova.CordovaArgs;
 import org.apache.cordova.CordovaHttpAuthHandler;
 import org.apache.cordova.CordovaPlugin;
 import org.apache.cordova.CordovaWebView;
-import org.apache.cordova.LOG;
 import org.apache.cordova.PluginManager;
 import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.StringTokenizer;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @SuppressLint("SetJavaScriptEnabled")
 public class InAppBrowser extends CordovaPlugin {
@@ -82,20 +99,145 @@ public class InAppBrowser extends CordovaPlugin {
     private static final String LOAD_START_EVENT = "loadstart";
     private static final String LOAD_STOP_EVENT = "loadstop";
     private static final String LOAD_ERROR_EVENT = "loaderror";
+    private static final String INTERCEPT_EVENT = "intercept";
+    private static final String METRICS_EVENT = "metrics";
+    private static final String MEMORY_WARNING_EVENT = "memorywarning";
     private static final String CLEAR_ALL_CACHE = "clearcache";
     private static final String CLEAR_SESSION_CACHE = "clearsessioncache";
     private static final String HARDWARE_BACK_BUTTON = "hardwareback";
+    private static final String JS_INTERFACE = "jsinterface";
+    private static final String PREFETCH = "prefetch";
+    private static final String RESPONSE_CACHE = "responsecache";
+    private static final String BATCH_EVENTS = "batchevents";
+    private static final String COLLAPSE_REDIRECTS = "collapseredirects";
+    private static final String CACHE_MODE = "cachemode";
+    private static final String LOAD_IMAGES = "loadimages";
+    private static final String STALE_IF_OFFLINE = "staleifoffline";
+    private static final String CLEAR_HTTP_CACHE = "clearhttpcache";
+    private static final String TOOLBAR_COLOR = "toolbarcolor";
+    private static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+    private static final InAppBrowserScriptTemplate SCRIPT_FILE_WRAPPER = new InAppBrowserScriptTemplate(
+            "(function(d) { var c = d.createElement('script'); c.src = %s; d.body.appendChild(c); })(document)");
+    private static final InAppBrowserScriptTemplate STYLE_CODE_WRAPPER = new InAppBrowserScriptTemplate(
+            "(function(d) { var c = d.createElement('style'); c.innerHTML = %s; d.body.appendChild(c); })(document)");
+    private static final InAppBrowserScriptTemplate STYLE_FILE_WRAPPER = new InAppBrowserScriptTemplate(
+            "(function(d) { var c = d.createElement('link'); c.rel='stylesheet'; c.type='text/css'; c.href = %s; d.head.appendChild(c); })(document)");
+    private static final String POOL_SIZE_PREFERENCE = "InAppBrowserPoolSize";
+    private static final String MAX_PRERENDERS_PREFERENCE = "InAppBrowserMaxPrerenders";
+    private static final String RESPONSE_CACHE_PREFERENCE = "InAppBrowserResponseCache";
+    private static final String RESPONSE_CACHE_SIZE_PREFERENCE = "InAppBrowserResponseCacheSize";
+    private static final int DEFAULT_RESPONSE_CACHE_SIZE = 20 * 1024 * 1024;
+    // How long a closing window waits for about:blank before its WebView is destroyed instead of pooled, in ms
+    private static final int RELEASE_TIMEOUT = 500;
+    // Closed windows are cleaned up one per frame
+    private static final int CLEANUP_INTERVAL = 16;
+    // While more closed windows than this are waiting, they are destroyed instead of
+    // unloaded for the pool, which would keep the others waiting longer
+    private static final int MAX_CLEANUP_QUEUE = 8;
+    private static final String LOAD_START_DEBOUNCE_PREFERENCE = "InAppBrowserLoadStartDebounce";
+    private static final String ASSET_PACK_PREFERENCE = "InAppBrowserAssetPack";
+    private static final String EXTERNAL_SCHEMES_PREFERENCE = "InAppBrowserExternalSchemes";
+    private static final String ASSET_PACK_ORIGINS_PREFERENCE = "InAppBrowserAssetPackOrigins";
+    private static final String LOG_LEVEL_PREFERENCE = "InAppBrowserLogLevel";
+
+    private final ConcurrentHashMap<String, InAppBrowserWindow> windows = new ConcurrentHashMap<String, InAppBrowserWindow>();
+    private final AtomicInteger windowCounter = new AtomicInteger();
+    private volatile InAppBrowserWindow lastWindow;
+    // Windows currently on screen, topmost last. Only used on the UI thread.
+    private final ArrayList<InAppBrowserWindow> visibleWindows = new ArrayList<InAppBrowserWindow>();
+    // Prefetched windows which have not been shown yet, least recently used first. Only used on the UI thread.
+    private final LinkedHashMap<String, InAppBrowserWindow> prerendered = new LinkedHashMap<String, InAppBrowserWindow>(8, 0.75f, true);
+    private int maxPrerenders;
+    private int loadStartDebounce;
+    private ComponentCallbacks2 memoryCallbacks;
+    // Only used on the UI thread
+    private boolean activityPaused = false;
+    private final CopyOnWriteArrayList<InAppBrowserRequestInterceptor> requestInterceptors = new CopyOnWriteArrayList<InAppBrowserRequestInterceptor>();
+    private InAppBrowserResponseCache responseCache;
+    private boolean useResponseCacheByDefault;
+    private InAppBrowserAssetPackInterceptor assetPackInterceptor;
+    // Asset pack swaps are numbered as they are requested; the number of the last one
+    // requested and of the one being served. Guarded by this.
+    private long assetPackRequested = 0;
+    private long assetPackServed = 0;
+    private final InAppBrowserScriptRegistry scriptRegistry = new InAppBrowserScriptRegistry();
+    private final InAppBrowserMetrics metrics = new InAppBrowserMetrics();
+    private InAppBrowserWebViewPool webViewPool;
+    private InAppBrowserResources resources;
+    private RelativeLayout recycledToolbar;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    // Closed windows waiting to be cleaned up. Only used on the UI thread.
+    private final ArrayDeque<InAppBrowserWindow> cleanupQueue = new ArrayDeque<InAppBrowserWindow>();
+    private final Runnable cleanupStep = new Runnable() {
+        @Override
+        public void run() {
+            cleanUpNextWindow();
+        }
+    };
 
-    private InAppBrowserDialog dialog;
-    private WebView inAppWebView;
-    private EditText edittext;
-    private CallbackContext callbackContext;
-    private boolean showLocationBar = true;
-    private boolean showZoomControls = true;
-    private boolean openWindowHidden = false;
-    private boolean clearAllCache = false;
-    private boolean clearSessionCache = false;
-    private boolean hadwareBackButton = true;
+    /**
+     * Creates the WebView pool and starts warming it once the UI thread is idle.
+     */
+    @Override
+    protected void pluginInitialize() {
+        Activity activity = cordova.getActivity();
+        InAppBrowserLog.setLevel(CordovaCompat.getStringPreference(activity, LOG_LEVEL_PREFERENCE, "WARN"));
+        requestInterceptors.add(scriptRegistry);
+        webViewPool = new InAppBrowserWebViewPool(activity, CordovaCompat.getIntegerPreference(activity, POOL_SIZE_PREFERENCE, 1));
+        resources = new InAppBrowserResources(activity);
+        maxPrerenders = Math.max(0, CordovaCompat.getIntegerPreference(activity, MAX_PRERENDERS_PREFERENCE, 2));
+        loadStartDebounce = Math.max(0, CordovaCompat.getIntegerPreference(activity, LOAD_START_DEBOUNCE_PREFERENCE, 100));
+        InAppBrowserSchemeHandlers.registerExternalSchemes(CordovaCompat.getStringPreference(activity, EXTERNAL_SCHEMES_PREFERENCE, ""));
+        responseCache = new InAppBrowserResponseCache(new File(activity.getCacheDir(), "InAppBrowserCache"),
+                CordovaCompat.getIntegerPreference(activity, RESPONSE_CACHE_SIZE_PREFERENCE, DEFAULT_RESPONSE_CACHE_SIZE));
+        useResponseCacheByDefault = CordovaCompat.getBooleanPreference(activity, RESPONSE_CACHE_PREFERENCE, false);
+        this.cordova.getActivity().runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                webViewPool.warm();
+            }
+        });
+        final String assetPack = CordovaCompat.getStringPreference(activity, ASSET_PACK_PREFERENCE, "");
+        if (assetPack.length() > 0) {
+            final long sequence;
+            synchronized (this) {
+                sequence = ++assetPackRequested;
+            }
+            cordova.getThreadPool().execute(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (InAppBrowser.this) {
+                        if (assetPackRequested != sequence) {
+                            // A pack was swapped in from JavaScript first
+                            return;
+                        }
+                    }
+                    try {
+                        swapAssetPack(assetPack, null, sequence);
+                    } catch (IOException e) {
+                        InAppBrowserLog.e(LOG_TAG, "Could not load asset pack " + assetPack, e);
+                    }
+                }
+            });
+        }
+        memoryCallbacks = new ComponentCallbacks2() {
+            public void onTrimMemory(int level) {
+                trimMemory(level);
+            }
+
+            public void onLowMemory() {
+                trimMemory(TRIM_MEMORY_COMPLETE);
+            }
+
+            // Toolbar icons and sizes depend on the configuration, so they are resolved
+            // again on the next open
+            public void onConfigurationChanged(Configuration newConfig) {
+                resources.invalidate();
+                recycledToolbar = null;
+            }
+        };
+        this.cordova.getActivity().registerComponentCallbacks(memoryCallbacks);
+    }
 
     /**
      * Executes the request and returns PluginResult.
@@ -107,87 +249,97 @@ public class InAppBrowser extends CordovaPlugin {
      */
     public boolean execute(String action, CordovaArgs args, final CallbackContext callbackContext) throws JSONException {
         if (action.equals("open")) {
-            this.callbackContext = callbackContext;
+            long executeTime = System.nanoTime();
             final String url = args.getString(0);
             String t = args.optString(1);
             if (t == null || t.equals("") || t.equals(NULL)) {
                 t = SELF;
             }
             final String target = t;
-            final HashMap<String, Boolean> features = parseFeature(args.optString(2));
+            final InAppBrowserOptions features = InAppBrowserOptions.parse(args.optString(2));
+            String id = args.optString(3);
+            if (id == null || id.equals("") || id.equals(NULL)) {
+                id = "iab" + windowCounter.incrementAndGet();
+            }
+            // Register the window right away, so that calls addressed to it which arrive
+            // before the UI thread has built it are not lost.
+            final InAppBrowserWindow window = SYSTEM.equals(target) ? null : createWindow(id, features, callbackContext);
+            if (window != null) {
+                window.timeline.mark(InAppBrowserMetrics.EXECUTE, executeTime);
+                window.timeline.setOpenTime(args.optLong(5));
+                if (window.options.getBoolean(CLEAR_HTTP_CACHE, false)) {
+                    // Off the UI thread, and done before the page can request anything
+                    responseCache.clear();
+                }
+            }
+            JSONArray patterns = args.optJSONArray(4);
+            if (window != null && patterns != null && patterns.length() > 0) {
+                String[] list = new String[patterns.length()];
+                for (int i = 0; i < list.length; i++) {
+                    list[i] = patterns.optString(i);
+                }
+                window.interceptMatcher = new InAppBrowserUrlMatcher(list);
+            }
 
-            Log.d(LOG_TAG, "target = " + target);
+            InAppBrowserLog.d(LOG_TAG, "target = %s", target);
 
             this.cordova.getActivity().runOnUiThread(new Runnable() {
                 @Override
                 public void run() {
+                    if (window != null) {
+                        window.timeline.mark(InAppBrowserMetrics.UI_THREAD);
+                    }
                     String result = "";
                     // SELF
                     if (SELF.equals(target)) {
-                        Log.d(LOG_TAG, "in self");
+                        InAppBrowserLog.d(LOG_TAG, "in self");
                         /* This code exists for compatibility between 3.x and 4.x versions of Cordova.
-                         * Previously the Config class had a static method, isUrlWhitelisted(). That
-                         * responsibility has been moved to the plugins, with an aggregating method in
-                         * PluginManager.
+                         * See CordovaCompat for details.
                          */
                         Boolean shouldAllowNavigation = null;
                         if (url.startsWith("javascript:")) {
                             shouldAllowNavigation = true;
                         }
                         if (shouldAllowNavigation == null) {
-                            try {
-                                Method iuw = Config.class.getMethod("isUrlWhiteListed", String.class);
-                                shouldAllowNavigation = (Boolean)iuw.invoke(null, url);
-                            } catch (NoSuchMethodException e) {
-                            } catch (IllegalAccessException e) {
-                            } catch (InvocationTargetException e) {
-                            }
+                            shouldAllowNavigation = CordovaCompat.isUrlWhiteListed(url);
                         }
                         if (shouldAllowNavigation == null) {
-                            try {
-                                Method gpm = webView.getClass().getMethod("getPluginManager");
-                                PluginManager pm = (PluginManager)gpm.invoke(webView);
-                                Method san = pm.getClass().getMethod("shouldAllowNavigation", String.class);
-                                shouldAllowNavigation = (Boolean)san.invoke(pm, url);
-                            } catch (NoSuchMethodException e) {
-                            } catch (IllegalAccessException e) {
-                            } catch (InvocationTargetException e) {
-                            }
+                            shouldAllowNavigation = CordovaCompat.shouldAllowNavigation(webView, url);
                         }
                         // load in webview
+                        // The window registered for the url is not needed after all. Close
+                        // it, so that it stops being the default target of later calls.
                         if (Boolean.TRUE.equals(shouldAllowNavigation)) {
-                            Log.d(LOG_TAG, "loading in webview");
+                            InAppBrowserLog.d(LOG_TAG, "loading in webview");
+                            closeWindow(window);
                             webView.loadUrl(url);
                         }
-                        //Load the dialer
-                        else if (url.startsWith(WebView.SCHEME_TEL))
-                        {
-                            try {
-                                Log.d(LOG_TAG, "loading in dialer");
-                                Intent intent = new Intent(Intent.ACTION_DIAL);
-                                intent.setData(Uri.parse(url));
-                                cordova.getActivity().startActivity(intent);
-                            } catch (android.content.ActivityNotFoundException e) {
-                                LOG.e(LOG_TAG, "Error dialing " + url + ": " + e.toString());
-                            }
+                        // Open tel:, mailto: and the other external schemes in their app
+                        else if (InAppBrowserSchemeHandlers.dispatch(cordova, url)) {
+                            InAppBrowserLog.d(LOG_TAG, "loading externally");
+                            closeWindow(window);
                         }
                         // load in InAppBrowser
                         else {
-                            Log.d(LOG_TAG, "loading in InAppBrowser");
-                            result = showWebPage(url, features);
+                            InAppBrowserLog.d(LOG_TAG, "loading in InAppBrowser");
+                            result = showWebPage(window, url);
                         }
                     }
                     // SYSTEM
                     else if (SYSTEM.equals(target)) {
-                        Log.d(LOG_TAG, "in system");
+                        InAppBrowserLog.d(LOG_TAG, "in system");
                         result = openExternal(url);
                     }
                     // BLANK - or anything else
                     else {
-                        Log.d(LOG_TAG, "in blank");
-                        result = showWebPage(url, features);
+                        InAppBrowserLog.d(LOG_TAG, "in blank");
+                        result = showWebPage(window, url);
                     }
 
+                    // A window closed above has already sent its last event, exit
+                    if (window != null && window.closed) {
+                        return;
+                    }
                     PluginResult pluginResult = new PluginResult(PluginResult.Status.OK, result);
                     pluginResult.setKeepCallback(true);
                     callbackContext.sendPluginResult(pluginResult);
@@ -195,52 +347,164 @@ public class InAppBrowser extends CordovaPlugin {
             });
         }
         else if (action.equals("close")) {
-            closeDialog();
+            InAppBrowserWindow window = findWindow(args, 0);
+            if (window != null) {
+                closeWindow(window);
+            }
         }
         else if (action.equals("injectScriptCode")) {
-            String jsWrapper = null;
+            InAppBrowserWindow window = findWindow(args, 2);
+            InAppBrowserScriptTemplate jsWrapper = null;
             if (args.getBoolean(1)) {
-                jsWrapper = String.format("prompt(JSON.stringify([eval(%%s)]), 'gap-iab://%s')", callbackContext.getCallbackId());
+                jsWrapper = new InAppBrowserScriptTemplate(resultCall(window, callbackContext.getCallbackId(), "JSON.stringify([eval(%s)])"));
             }
-            injectDeferredObject(args.getString(0), jsWrapper);
+            injectDeferredObject(window, args.getString(0), jsWrapper);
+        }
+        else if (action.equals("injectScriptCodeStream")) {
+            InAppBrowserWindow window = findWindow(args, 2);
+            int chunkSize = args.optInt(1);
+            if (chunkSize <= 0) {
+                chunkSize = DEFAULT_CHUNK_SIZE;
+            }
+            // Cut s into chunks of at most n UTF-16 units, moving a cut back by one where it
+            // would split a surrogate pair, since a lone surrogate does not survive the bridge
+            InAppBrowserScriptTemplate jsWrapper = new InAppBrowserScriptTemplate("(function() { var s = JSON.stringify([(0, eval)(%s)]), n = " + chunkSize
+                    + ", b = [0], e; while (b[b.length - 1] < s.length) { e = Math.min(s.length, b[b.length - 1] + n); "
+                    + "if (e < s.length && e - 1 > b[b.length - 1] && (s.charCodeAt(e - 1) & 0xFC00) === 0xD800) { e--; } b.push(e); } "
+                    + "for (var i = 0, c = b.length - 1; i < c; i++) { "
+                    + chunkCall(window, callbackContext.getCallbackId(), "i", "c", "s.substring(b[i], b[i + 1])") + "; } })()");
+            injectDeferredObject(window, args.getString(0), jsWrapper);
         }
         else if (action.equals("injectScriptFile")) {
-            String jsWrapper;
-            if (args.getBoolean(1)) {
-                jsWrapper = String.format("(function(d) { var c = d.createElement('script'); c.src = %%s; c.onload = function() { prompt('', 'gap-iab://%s'); }; d.body.appendChild(c); })(document)", callbackContext.getCallbackId());
-            } else {
-                jsWrapper = "(function(d) { var c = d.createElement('script'); c.src = %s; d.body.appendChild(c); })(document)";
+            InAppBrowserWindow window = findWindow(args, 2);
+            injectScriptFile(window, args.getString(0), args.getBoolean(1) ? callbackContext.getCallbackId() : null);
+        }
+        else if (action.equals("injectRegisteredScript")) {
+            InAppBrowserWindow window = findWindow(args, 2);
+            String url = scriptRegistry.getUrl(args.getString(0));
+            if (url == null) {
+                InAppBrowserLog.w(LOG_TAG, "No script registered as %s", args.getString(0));
+                callbackContext.error("No script registered as " + args.getString(0));
+                return true;
             }
-            injectDeferredObject(args.getString(0), jsWrapper);
+            injectScriptFile(window, url, args.getBoolean(1) ? callbackContext.getCallbackId() : null);
+        }
+        else if (action.equals("registerScript")) {
+            try {
+                callbackContext.success(scriptRegistry.register(args.getString(0), args.getString(1)));
+            } catch (IllegalArgumentException e) {
+                callbackContext.error(e.getMessage());
+            }
+        }
+        else if (action.equals("unregisterScript")) {
+            scriptRegistry.unregister(args.getString(0));
+            callbackContext.success();
         }
         else if (action.equals("injectStyleCode")) {
-            String jsWrapper;
+            InAppBrowserWindow window = findWindow(args, 2);
+            InAppBrowserScriptTemplate jsWrapper;
             if (args.getBoolean(1)) {
-                jsWrapper = String.format("(function(d) { var c = d.createElement('style'); c.innerHTML = %%s; d.body.appendChild(c); prompt('', 'gap-iab://%s');})(document)", callbackContext.getCallbackId());
+                jsWrapper = new InAppBrowserScriptTemplate("(function(d) { var c = d.createElement('style'); c.innerHTML = %s; d.body.appendChild(c); " + resultCall(window, callbackContext.getCallbackId(), "''") + ";})(document)");
             } else {
-                jsWrapper = "(function(d) { var c = d.createElement('style'); c.innerHTML = %s; d.body.appendChild(c); })(document)";
+                jsWrapper = STYLE_CODE_WRAPPER;
             }
-            injectDeferredObject(args.getString(0), jsWrapper);
+            injectDeferredObject(window, args.getString(0), jsWrapper);
         }
         else if (action.equals("injectStyleFile")) {
-            String jsWrapper;
+            InAppBrowserWindow window = findWindow(args, 2);
+            InAppBrowserScriptTemplate jsWrapper;
             if (args.getBoolean(1)) {
-                jsWrapper = String.format("(function(d) { var c = d.createElement('link'); c.rel='stylesheet'; c.type='text/css'; c.href = %%s; d.head.appendChild(c); prompt('', 'gap-iab://%s');})(document)", callbackContext.getCallbackId());
+                jsWrapper = new InAppBrowserScriptTemplate("(function(d) { var c = d.createElement('link'); c.rel='stylesheet'; c.type='text/css'; c.href = %s; d.head.appendChild(c); " + resultCall(window, callbackContext.getCallbackId(), "''") + ";})(document)");
             } else {
-                jsWrapper = "(function(d) { var c = d.createElement('link'); c.rel='stylesheet'; c.type='text/css'; c.href = %s; d.head.appendChild(c); })(document)";
+                jsWrapper = STYLE_FILE_WRAPPER;
             }
-            injectDeferredObject(args.getString(0), jsWrapper);
+            injectDeferredObject(window, args.getString(0), jsWrapper);
+        }
+        else if (action.equals("injectBatch")) {
+            InAppBrowserWindow window = findWindow(args, 2);
+            String callbackId = args.getBoolean(1) ? callbackContext.getCallbackId() : null;
+            injectDeferredObject(window, buildBatchScript(window, args.getJSONArray(0), callbackId), null);
         }
         else if (action.equals("show")) {
+            final InAppBrowserWindow window = findWindow(args, 0);
+            if (window == null) {
+                return true;
+            }
             this.cordova.getActivity().runOnUiThread(new Runnable() {
                 @Override
                 public void run() {
-                    dialog.show();
+                    if (window.dialog != null && !window.closed) {
+                        prerendered.remove(window.getId());
+                        window.throttled = false;
+                        if (!activityPaused) {
+                            window.resume();
+                        }
+                        window.dialog.show();
+                        window.timeline.mark(InAppBrowserMetrics.SHOWN);
+                        visibleWindows.remove(window);
+                        visibleWindows.add(window);
+                    }
+                }
+            });
+            window.sendResult(new PluginResult(PluginResult.Status.OK));
+        }
+        else if (action.equals("swapAssetPack")) {
+            final String path = args.getString(0);
+            JSONArray origins = args.optJSONArray(1);
+            final String[] prefixes = origins == null ? null : new String[origins.length()];
+            for (int i = 0; prefixes != null && i < prefixes.length; i++) {
+                prefixes[i] = origins.getString(i);
+            }
+            cordova.getThreadPool().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        InAppBrowserAssetPack pack = swapAssetPack(path, prefixes);
+                        JSONObject obj = new JSONObject();
+                        obj.put("version", pack.getVersion());
+                        obj.put("entries", pack.getEntryCount());
+                        callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, obj));
+                    } catch (IOException e) {
+                        callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.IO_EXCEPTION, e.getMessage()));
+                    } catch (JSONException e) {
+                        callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.JSON_EXCEPTION));
+                    }
                 }
             });
-            PluginResult pluginResult = new PluginResult(PluginResult.Status.OK);
-            pluginResult.setKeepCallback(true);
-            this.callbackContext.sendPluginResult(pluginResult);
+        }
+        else if (action.equals("getMetrics")) {
+            JSONObject obj = new JSONObject();
+            obj.put("phases", metrics.toJSON());
+            JSONObject pool = new JSONObject();
+            pool.put("hits", webViewPool.getHits());
+            pool.put("misses", webViewPool.getMisses());
+            pool.put("maxSize", webViewPool.getMaxSize());
+            obj.put("pool", pool);
+            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, obj));
+        }
+        else if (action.equals("setCookies")) {
+            final String url = args.getString(0);
+            final JSONArray cookies = args.getJSONArray(1);
+            cordova.getThreadPool().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        setCookies(url, cookies);
+                        callbackContext.success(cookies.length());
+                    } catch (JSONException e) {
+                        callbackContext.error(e.getMessage());
+                    }
+                }
+            });
+        }
+        else if (action.equals("getCacheStats")) {
+            JSONObject stats = new JSONObject();
+            stats.put("hits", responseCache.getHits());
+            stats.put("misses", responseCache.getMisses());
+            stats.put("entries", responseCache.getEntryCount());
+            stats.put("size", responseCache.getSize());
+            stats.put("maxSize", responseCache.getMaxSize());
+            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, stats));
         }
         else {
             return false;
@@ -248,12 +512,32 @@ public class InAppBrowser extends CordovaPlugin {
         return true;
     }
 
+    /**
+     * Set several cookies and write them to storage once, so that a page opened next
+     * finds them. Must not be called on the UI thread.
+     *
+     * @param url the url the cookies are set for
+     * @param cookies the cookies, each in the format of a Set-Cookie header
+     */
+    @SuppressWarnings("deprecation")
+    public void setCookies(String url, JSONArray cookies) throws JSONException {
+        CookieManager cookieManager = CookieManager.getInstance();
+        for (int i = 0; i < cookies.length(); i++) {
+            cookieManager.setCookie(url, cookies.getString(i));
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            cookieManager.flush();
+        } else {
+            CookieSyncManager.createInstance(cordova.getActivity()).sync();
+        }
+    }
+
     /**
      * Called when the view navigates.
      */
     @Override
     public void onReset() {
-        closeDialog();
+        closeAll();
     }
 
     /**
@@ -261,7 +545,168 @@ public class InAppBrowser extends CordovaPlugin {
      * Stop listener.
      */
     public void onDestroy() {
-        closeDialog();
+        this.cordova.getActivity().unregisterComponentCallbacks(memoryCallbacks);
+        closeAll();
+        this.cordova.getActivity().runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                handler.removeCallbacks(cleanupStep);
+                InAppBrowserWindow window;
+                while ((window = cleanupQueue.poll()) != null) {
+                    releaseWindow(window, false);
+                }
+                webViewPool.clear();
+            }
+        });
+    }
+
+    /**
+     * Pause the WebViews of every window while the app is in the background.
+     */
+    @Override
+    public void onPause(boolean multitasking) {
+        activityPaused = true;
+        for (InAppBrowserWindow window : windows.values()) {
+            window.pause();
+        }
+    }
+
+    /**
+     * Resume the WebViews paused by {@link #onPause}, except those of hidden windows.
+     */
+    @Override
+    public void onResume(boolean multitasking) {
+        activityPaused = false;
+        for (InAppBrowserWindow window : windows.values()) {
+            if (!window.throttled) {
+                window.resume();
+            }
+        }
+    }
+
+    /**
+     * Free memory when the system asks for it, and tell every window with a
+     * memorywarning event. Prefetched windows are dropped first, then the pooled
+     * WebViews and toolbar, then the windows opened hidden.
+     *
+     * Must be called on the UI thread.
+     *
+     * @param level the level passed to onTrimMemory
+     */
+    private void trimMemory(int level) {
+        if (level == ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            // Not a memory shortage, onPause takes care of it
+            return;
+        }
+        boolean critical = level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+                || level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE;
+        boolean low = critical || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND;
+        if (low) {
+            evictPrerenders(0);
+            webViewPool.clear();
+            recycledToolbar = null;
+        } else {
+            evictPrerenders(prerendered.size() - 1);
+        }
+        if (critical) {
+            for (InAppBrowserWindow window : windows.values()) {
+                if (window.openWindowHidden && window.dialog != null && !visibleWindows.contains(window)) {
+                    InAppBrowserLog.d(LOG_TAG, "Closing hidden window %s", window.getId());
+                    closeWindow(window);
+                }
+            }
+        }
+
+        for (InAppBrowserWindow window : windows.values()) {
+            try {
+                JSONObject obj = new JSONObject();
+                obj.put("type", MEMORY_WARNING_EVENT);
+                obj.put("level", level);
+                window.sendUpdate(obj, true, PluginResult.Status.OK);
+            } catch (JSONException ex) {
+                InAppBrowserLog.d(LOG_TAG, "Should never happen");
+            }
+        }
+    }
+
+    /**
+     * Add an interceptor which gets a chance to answer the requests of every window
+     * before the network, or the response cache when it is enabled.
+     */
+    public void addRequestInterceptor(InAppBrowserRequestInterceptor interceptor) {
+        requestInterceptors.addIfAbsent(interceptor);
+    }
+
+    public void removeRequestInterceptor(InAppBrowserRequestInterceptor interceptor) {
+        requestInterceptors.remove(interceptor);
+    }
+
+    /**
+     * Load an asset pack and start serving it in place of the current one. Open windows
+     * are not affected other than by the responses they get from now on.
+     *
+     * @param path the pack file, relative to the app's files directory unless absolute
+     * @param prefixes the url prefixes to serve from the pack, or null to keep the current
+     *                 ones, which default to the InAppBrowserAssetPackOrigins preference
+     * @return the new pack
+     * @throws IOException if the pack cannot be loaded, or a swap requested later has
+     *                     already completed; the current pack is kept
+     */
+    public InAppBrowserAssetPack swapAssetPack(String path, String[] prefixes) throws IOException {
+        long sequence;
+        synchronized (this) {
+            sequence = ++assetPackRequested;
+        }
+        return swapAssetPack(path, prefixes, sequence);
+    }
+
+    /**
+     * Load an asset pack and swap it in, unless a swap requested later got there first.
+     * Packs load concurrently, so they can finish in any order.
+     *
+     * @param sequence the number the swap was given when it was requested
+     */
+    private InAppBrowserAssetPack swapAssetPack(String path, String[] prefixes, long sequence) throws IOException {
+        File file = new File(path);
+        if (!file.isAbsolute()) {
+            file = new File(cordova.getActivity().getFilesDir(), path);
+        }
+        InAppBrowserAssetPack pack = InAppBrowserAssetPack.load(file);
+        synchronized (this) {
+            if (sequence < assetPackServed) {
+                throw new IOException("Asset pack " + file + " was superseded by a later swap");
+            }
+            if (assetPackInterceptor == null) {
+                if (prefixes == null) {
+                    String origins = CordovaCompat.getStringPreference(cordova.getActivity(), ASSET_PACK_ORIGINS_PREFERENCE, "").trim();
+                    prefixes = origins.length() == 0 ? new String[0] : origins.split("[\\s,]+");
+                }
+                assetPackInterceptor = new InAppBrowserAssetPackInterceptor(prefixes);
+                // Ahead of any other interceptor, the pack is the fastest way to answer
+                requestInterceptors.add(0, assetPackInterceptor);
+            } else if (prefixes != null) {
+                assetPackInterceptor.setPrefixes(prefixes);
+            }
+            assetPackInterceptor.swap(pack);
+            assetPackServed = sequence;
+        }
+        InAppBrowserLog.d(LOG_TAG, "Serving asset pack %s version %s", file, pack.getVersion());
+        return pack;
+    }
+
+    /**
+     * Returns the cache of static assets used by windows opened with responsecache=yes.
+     */
+    public InAppBrowserResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Returns the pool used to recycle InAppBrowser WebViews.
+     */
+    public InAppBrowserWebViewPool getWebViewPool() {
+        return webViewPool;
     }
 
     /**
@@ -270,24 +715,23 @@ public class InAppBrowser extends CordovaPlugin {
      * This is a helper method for the inject{Script|Style}{Code|File} API calls, which
      * provides a consistent method for injecting JavaScript code into the document.
      *
-     * If a wrapper string is supplied, then the source string will be JSON-encoded (adding
-     * quotes) and wrapped using string formatting. (The wrapper string should have a single
-     * '%s' marker)
+     * If a wrapper template is supplied, then the source string will be JSON-encoded (adding
+     * quotes) and put in the template's '%s' slot.
      *
+     * @param window      The window to inject into. Nothing is injected if it is null.
      * @param source      The source object (filename or script/style text) to inject into
      *                    the document.
-     * @param jsWrapper   A JavaScript string to wrap the source string in, so that the object
+     * @param jsWrapper   A JavaScript template to wrap the source string in, so that the object
      *                    is properly injected, or null if the source string is JavaScript text
      *                    which should be executed directly.
      */
-    private void injectDeferredObject(String source, String jsWrapper) {
+    private void injectDeferredObject(final InAppBrowserWindow window, String source, InAppBrowserScriptTemplate jsWrapper) {
+        if (window == null) {
+            return;
+        }
         String scriptToInject;
         if (jsWrapper != null) {
-            org.json.JSONArray jsonEsc = new org.json.JSONArray();
-            jsonEsc.put(source);
-            String jsonRepr = jsonEsc.toString();
-            String jsonSourceString = jsonRepr.substring(1, jsonRepr.length()-1);
-            scriptToInject = String.format(jsWrapper, jsonSourceString);
+            scriptToInject = jsWrapper.render(source);
         } else {
             scriptToInject = source;
         }
@@ -296,6 +740,12 @@ public class InAppBrowser extends CordovaPlugin {
             @SuppressLint("NewApi")
             @Override
             public void run() {
+                WebView inAppWebView = window.webView;
+                if (inAppWebView == null || window.closed) {
+                    return;
+                }
+                // Counts as a use of a prefetched window
+                prerendered.get(window.getId());
                 if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
                     // This action will have the side-effect of blurring the currently focused element
                     inAppWebView.loadUrl("javascript:" + finalScriptToInject);
@@ -307,28 +757,107 @@ public class InAppBrowser extends CordovaPlugin {
     }
 
     /**
-     * Put the list of features into a hash map
+     * Inject a script element loading the given url.
      *
-     * @param optString
-     * @return
+     * @param window     the window to inject into
+     * @param url        the url of the script
+     * @param callbackId the callback to notify once the script has run, or null
      */
-    private HashMap<String, Boolean> parseFeature(String optString) {
-        if (optString.equals(NULL)) {
-            return null;
+    private void injectScriptFile(InAppBrowserWindow window, String url, String callbackId) {
+        InAppBrowserScriptTemplate jsWrapper;
+        if (callbackId != null) {
+            jsWrapper = new InAppBrowserScriptTemplate("(function(d) { var c = d.createElement('script'); c.src = %s; c.onload = function() { " + resultCall(window, callbackId, "''") + "; }; d.body.appendChild(c); })(document)");
         } else {
-            HashMap<String, Boolean> map = new HashMap<String, Boolean>();
-            StringTokenizer features = new StringTokenizer(optString, ",");
-            StringTokenizer option;
-            while(features.hasMoreElements()) {
-                option = new StringTokenizer(features.nextToken(), "=");
-                if (option.hasMoreElements()) {
-                    String key = option.nextToken();
-                    Boolean value = option.nextToken().equals("no") ? Boolean.FALSE : Boolean.TRUE;
-                    map.put(key, value);
-                }
+            jsWrapper = SCRIPT_FILE_WRAPPER;
+        }
+        injectDeferredObject(window, url, jsWrapper);
+    }
+
+    /**
+     * Build the JavaScript expression that passes an injected script's result back to the
+     * given callback, through the JavaScript interface bridge if the window has one and
+     * through the prompt() bridge otherwise.
+     *
+     * @param window          the window the script is injected into
+     * @param callbackId      the callback to send the result to
+     * @param valueExpression a JavaScript expression evaluating to the JSON-encoded result
+     * @return a JavaScript expression
+     */
+    private String resultCall(InAppBrowserWindow window, String callbackId, String valueExpression) {
+        InAppBrowserBridge currentBridge = window == null ? null : window.getBridge();
+        if (currentBridge != null) {
+            return currentBridge.resultCall(callbackId, valueExpression);
+        }
+        return "prompt(" + valueExpression + ", 'gap-iab://" + callbackId + "')";
+    }
+
+    /**
+     * Build the JavaScript expression that passes one chunk of a streamed result back to
+     * the given callback, using the same channel as {@link #resultCall}.
+     *
+     * @param window          the window the script is injected into
+     * @param callbackId      the callback to send the chunk to
+     * @param indexExpression a JavaScript expression evaluating to the chunk index
+     * @param countExpression a JavaScript expression evaluating to the number of chunks
+     * @param chunkExpression a JavaScript expression evaluating to the chunk text
+     * @return a JavaScript expression
+     */
+    private String chunkCall(InAppBrowserWindow window, String callbackId, String indexExpression, String countExpression, String chunkExpression) {
+        InAppBrowserBridge currentBridge = window == null ? null : window.getBridge();
+        if (currentBridge != null) {
+            return currentBridge.chunkCall(callbackId, indexExpression, countExpression, chunkExpression);
+        }
+        return "prompt(" + chunkExpression + ", 'gap-iab-chunk://' + " + indexExpression + " + '/' + "
+                + countExpression + " + '/" + callbackId + "')";
+    }
+
+    /**
+     * Build a single script which injects every entry of an injectBatch call.
+     *
+     * Each entry is an object with a "type" of either "script" or "style", and exactly
+     * one of "code" or "file". Script code is evaluated in the global scope and its value
+     * is stored at the entry's index in the result array; entries which throw, and all
+     * other entry types, produce null. If a callback id is given, the result array is
+     * sent back through the prompt bridge once every injected file has loaded (or failed).
+     *
+     * @param window     the window the script is injected into
+     * @param entries    the entries to inject, in order
+     * @param callbackId the callback to send the results to, or null for no results
+     * @return the JavaScript source to evaluate
+     */
+    private String buildBatchScript(InAppBrowserWindow window, JSONArray entries, String callbackId) throws JSONException {
+        StringBuilder script = new StringBuilder("(function(d) { var r = [], p = 1; ");
+        script.append("function done() { if (--p === 0) { ");
+        if (callbackId != null) {
+            script.append(resultCall(window, callbackId, "JSON.stringify(r)")).append("; ");
+        }
+        script.append("} } var c; ");
+        for (int i = 0; i < entries.length(); i++) {
+            JSONObject entry = entries.getJSONObject(i);
+            boolean isScript = "script".equals(entry.optString("type"));
+            boolean isFile = !entry.has("code");
+            String source = isFile ? entry.getString("file") : entry.getString("code");
+            script.append("r[").append(i).append("] = null; ");
+            if (isScript && !isFile) {
+                script.append("try { r[").append(i).append("] = (0, eval)(");
+                InAppBrowserEventEncoder.appendQuoted(script, source);
+                script.append("); } catch (e) {} ");
+            } else if (isScript) {
+                script.append("c = d.createElement('script'); c.src = ");
+                InAppBrowserEventEncoder.appendQuoted(script, source);
+                script.append("; c.onload = c.onerror = done; p++; d.body.appendChild(c); ");
+            } else if (!isFile) {
+                script.append("c = d.createElement('style'); c.innerHTML = ");
+                InAppBrowserEventEncoder.appendQuoted(script, source);
+                script.append("; d.body.appendChild(c); ");
+            } else {
+                script.append("c = d.createElement('link'); c.rel = 'stylesheet'; c.type = 'text/css'; c.href = ");
+                InAppBrowserEventEncoder.appendQuoted(script, source);
+                script.append("; c.onload = c.onerror = done; p++; d.head.appendChild(c); ");
             }
-            return map;
         }
+        script.append("done(); })(document)");
+        return script.toString();
     }
 
     /**
@@ -353,45 +882,207 @@ public class InAppBrowser extends CordovaPlugin {
             this.cordova.getActivity().startActivity(intent);
             return "";
         } catch (android.content.ActivityNotFoundException e) {
-            Log.d(LOG_TAG, "InAppBrowser: Error loading url "+url+":"+ e.toString());
+            InAppBrowserLog.d(LOG_TAG, "Error loading url %s: %s", url, e);
             return e.toString();
         }
     }
 
     /**
-     * Closes the dialog
+     * Look up the window an action is addressed to.
+     *
+     * @param args the action arguments
+     * @param index the position of the window id in the arguments
+     * @return the window with that id, the most recently opened window if no id was
+     *         given, or null if there is no such window
+     */
+    private InAppBrowserWindow findWindow(CordovaArgs args, int index) {
+        String id = args.optString(index);
+        if (id == null || id.equals("") || id.equals(NULL)) {
+            InAppBrowserWindow window = lastWindow;
+            return window == null || window.closed ? null : window;
+        }
+        return windows.get(id);
+    }
+
+    /**
+     * Returns the open window with the given id, or null.
+     */
+    public InAppBrowserWindow getWindow(String id) {
+        return windows.get(id);
+    }
+
+    /**
+     * The window which receives hardware back presses: the topmost visible one, or the
+     * most recently opened one if none is visible.
+     */
+    private InAppBrowserWindow getFocusedWindow() {
+        if (!visibleWindows.isEmpty()) {
+            return visibleWindows.get(visibleWindows.size() - 1);
+        }
+        return lastWindow;
+    }
+
+    /**
+     * Closes the focused window
      */
     public void closeDialog() {
-        final WebView childView = this.inAppWebView;
+        InAppBrowserWindow window = getFocusedWindow();
+        if (window != null) {
+            closeWindow(window);
+        }
+    }
+
+    /**
+     * Closes every open window
+     */
+    public void closeAll() {
+        for (InAppBrowserWindow window : windows.values()) {
+            closeWindow(window);
+        }
+    }
+
+    /**
+     * Closes a window
+     *
+     * @param window the window to close
+     */
+    public void closeWindow(final InAppBrowserWindow window) {
         // The JS protects against multiple calls, so this should happen only when
-        // closeDialog() is called by other native code.
-        if (childView == null) {
+        // closeWindow() is called by other native code.
+        if (!window.markClosed()) {
             return;
         }
+        windows.remove(window.getId(), window);
+        if (window.getBridge() != null) {
+            window.getBridge().clearPending();
+        }
         this.cordova.getActivity().runOnUiThread(new Runnable() {
             @Override
             public void run() {
-                childView.setWebViewClient(new WebViewClient() {
-                    // NB: wait for about:blank before dismissing
-                    public void onPageFinished(WebView view, String url) {
-                        if (dialog != null) {
-                            dialog.dismiss();
-                        }
-                    }
-                });
-                // NB: From SDK 19: "If you call methods on WebView from any thread
-                // other than your app's UI thread, it can cause unexpected results."
-                // http://developer.android.com/guide/webapps/migrating.html#Threads
-                childView.loadUrl("about:blank");
+                visibleWindows.remove(window);
+                prerendered.remove(window.getId());
+                if (lastWindow == window) {
+                    lastWindow = null;
+                }
+                // Hide the window right away, the WebView is cleaned up in the background
+                if (window.dialog != null) {
+                    window.dialog.dismiss();
+                    window.dialog.setInAppBroswer(null);
+                    window.dialog = null;
+                }
+                if (window.webView != null) {
+                    // No more events after exit
+                    window.webView.setWebViewClient(new WebViewClient());
+                    window.webView.stopLoading();
+                }
+                cleanupQueue.add(window);
+                if (cleanupQueue.size() == 1) {
+                    handler.post(cleanupStep);
+                }
             }
         });
 
-        try {
-            JSONObject obj = new JSONObject();
-            obj.put("type", EXIT_EVENT);
-            sendUpdate(obj, false);
-        } catch (JSONException ex) {
-            Log.d(LOG_TAG, "Should never happen");
+        window.sendEvent(EXIT_EVENT, null, 0, null, PluginResult.Status.OK, false);
+    }
+
+    /**
+     * Start cleaning up the next closed window, then come back on a later frame for the
+     * one after it.
+     *
+     * Must be called on the UI thread.
+     */
+    private void cleanUpNextWindow() {
+        final InAppBrowserWindow window = cleanupQueue.poll();
+        if (window == null) {
+            return;
+        }
+        if (!cleanupQueue.isEmpty()) {
+            handler.postDelayed(cleanupStep, CLEANUP_INTERVAL);
+        }
+        final WebView childView = window.webView;
+        // Closing many windows at once must not keep their WebViews alive for long
+        if (childView == null || cleanupQueue.size() >= MAX_CLEANUP_QUEUE) {
+            releaseWindow(window, false);
+            return;
+        }
+        // A renderer that is stuck or gone never finishes about:blank, and the view may
+        // still show the old page, so it is destroyed rather than pooled
+        final Runnable discard = new Runnable() {
+            @Override
+            public void run() {
+                InAppBrowserLog.d(LOG_TAG, "Window %s did not unload in time", window.getId());
+                releaseWindow(window, false);
+            }
+        };
+        childView.setWebViewClient(new WebViewClient() {
+            // NB: only pool the view once the old page is gone
+            public void onPageFinished(WebView view, String url) {
+                if ("about:blank".equals(url)) {
+                    handler.removeCallbacks(discard);
+                    releaseWindow(window, true);
+                }
+            }
+        });
+        handler.postDelayed(discard, RELEASE_TIMEOUT);
+        // NB: From SDK 19: "If you call methods on WebView from any thread
+        // other than your app's UI thread, it can cause unexpected results."
+        // http://developer.android.com/guide/webapps/migrating.html#Threads
+        childView.loadUrl("about:blank");
+    }
+
+    /**
+     * Dismiss a closed window and drop every reference it holds to views, so nothing of
+     * it outlives the close. Its WebView goes back to the pool, or is destroyed if the
+     * pool is full or the view is not reusable. Does nothing if the window was already
+     * released.
+     *
+     * Must be called on the UI thread.
+     *
+     * @param window the closed window
+     * @param reusable whether the WebView has finished loading about:blank
+     */
+    private void releaseWindow(InAppBrowserWindow window, boolean reusable) {
+        // Pooled WebViews must not stay paused
+        window.resume();
+        if (window.dialog != null) {
+            window.dialog.dismiss();
+            window.dialog.setInAppBroswer(null);
+            window.dialog = null;
+        }
+        WebView childView = window.webView;
+        if (childView != null) {
+            window.webView = null;
+            childView.removeJavascriptInterface(InAppBrowserBridge.NAME);
+            if (reusable) {
+                webViewPool.release(childView);
+            } else {
+                webViewPool.discard(childView);
+            }
+        }
+        recycleToolbar(window.toolbar);
+        window.toolbar = null;
+        window.edittext = null;
+    }
+
+    /**
+     * Close the least recently used prefetched windows until no more than the given
+     * number are left. Each closed window sends its exit event.
+     *
+     * Must be called on the UI thread.
+     *
+     * @param keep the number of prefetched windows to keep
+     */
+    private void evictPrerenders(int keep) {
+        Iterator<InAppBrowserWindow> it = prerendered.values().iterator();
+        int excess = prerendered.size() - keep;
+        ArrayList<InAppBrowserWindow> evicted = new ArrayList<InAppBrowserWindow>();
+        while (excess-- > 0 && it.hasNext()) {
+            evicted.add(it.next());
+            it.remove();
+        }
+        for (InAppBrowserWindow window : evicted) {
+            InAppBrowserLog.d(LOG_TAG, "Evicting prefetched window %s", window.getId());
+            closeWindow(window);
         }
     }
 
@@ -399,8 +1090,9 @@ public class InAppBrowser extends CordovaPlugin {
      * Checks to see if it is possible to go back one page in history, then does so.
      */
     public void goBack() {
-        if (this.inAppWebView.canGoBack()) {
-            this.inAppWebView.goBack();
+        InAppBrowserWindow window = getFocusedWindow();
+        if (window != null) {
+            window.goBack();
         }
     }
 
@@ -409,7 +1101,8 @@ public class InAppBrowser extends CordovaPlugin {
      * @return boolean
      */
     public boolean canGoBack() {
-        return this.inAppWebView.canGoBack();
+        InAppBrowserWindow window = getFocusedWindow();
+        return window != null && window.canGoBack();
     }
 
     /**
@@ -417,43 +1110,111 @@ public class InAppBrowser extends CordovaPlugin {
      * @return boolean
      */
     public boolean hardwareBack() {
-        return hadwareBackButton;
-    }
-
-    /**
-     * Checks to see if it is possible to go forward one page in history, then does so.
-     */
-    private void goForward() {
-        if (this.inAppWebView.canGoForward()) {
-            this.inAppWebView.goForward();
-        }
+        InAppBrowserWindow window = getFocusedWindow();
+        return window == null || window.hardwareBackButton;
     }
 
     /**
      * Navigate to the new page
      *
+     * @param window the window to navigate
      * @param url to load
      */
-    private void navigate(String url) {
+    private void navigate(InAppBrowserWindow window, String url) {
+        WebView inAppWebView = window.webView;
+        if (inAppWebView == null) {
+            return;
+        }
         InputMethodManager imm = (InputMethodManager)this.cordova.getActivity().getSystemService(Context.INPUT_METHOD_SERVICE);
-        imm.hideSoftInputFromWindow(edittext.getWindowToken(), 0);
+        imm.hideSoftInputFromWindow(window.edittext.getWindowToken(), 0);
 
         if (!url.startsWith("http") && !url.startsWith("file:")) {
-            this.inAppWebView.loadUrl("http://" + url);
-        } else {
-            this.inAppWebView.loadUrl(url);
+            url = "http://" + url;
         }
-        this.inAppWebView.requestFocus();
+        if (!interceptNavigation(window, url)) {
+            updateCacheMode(window);
+            inAppWebView.loadUrl(url);
+        }
+        inAppWebView.requestFocus();
     }
 
+    /**
+     * Set the cache mode of a window's WebView from its cachemode option. With
+     * staleifoffline=yes, anything cached is used regardless of its age if the device has
+     * no network connection. The connection is only checked here, when the window opens
+     * and when it navigates with the navigate action, not on every page load.
+     *
+     * @param window the window
+     */
+    private void updateCacheMode(InAppBrowserWindow window) {
+        String mode = window.options.getString(CACHE_MODE, "default");
+        int cacheMode = WebSettings.LOAD_DEFAULT;
+        if (mode.equals("cacheelsenetwork")) {
+            cacheMode = WebSettings.LOAD_CACHE_ELSE_NETWORK;
+        } else if (mode.equals("nocache")) {
+            cacheMode = WebSettings.LOAD_NO_CACHE;
+        } else if (mode.equals("cacheonly")) {
+            cacheMode = WebSettings.LOAD_CACHE_ONLY;
+        } else if (!mode.equals("default")) {
+            InAppBrowserLog.w(LOG_TAG, "Unknown cachemode %s", mode);
+        }
+        if (cacheMode == WebSettings.LOAD_DEFAULT && window.options.getBoolean(STALE_IF_OFFLINE, false) && !isOnline()) {
+            cacheMode = WebSettings.LOAD_CACHE_ELSE_NETWORK;
+        }
+        window.webView.getSettings().setCacheMode(cacheMode);
+    }
 
     /**
-     * Should we show the location bar?
+     * Whether the device has a network connection. The plugin does not request the
+     * ACCESS_NETWORK_STATE permission this needs; without it the device is assumed to be
+     * online.
+     */
+    @SuppressLint("MissingPermission")
+    private boolean isOnline() {
+        Context context = cordova.getActivity();
+        if (context.checkCallingOrSelfPermission(Manifest.permission.ACCESS_NETWORK_STATE) != PackageManager.PERMISSION_GRANTED) {
+            InAppBrowserLog.w(LOG_TAG, "staleifoffline needs the ACCESS_NETWORK_STATE permission");
+            return true;
+        }
+        ConnectivityManager connectivity = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity == null) {
+            return true;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            NetworkCapabilities capabilities = connectivity.getNetworkCapabilities(connectivity.getActiveNetwork());
+            return capabilities != null && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+        }
+        NetworkInfo network = connectivity.getActiveNetworkInfo();
+        return network != null && network.isConnected();
+    }
+
+    /**
+     * Check a navigation against the patterns the window was opened with, and send an
+     * intercept event if one of them matches.
      *
-     * @return boolean
+     * @param window the window navigating
+     * @param url the url it navigates to
+     * @return true if the navigation was intercepted and must not happen
      */
-    private boolean getShowLocationBar() {
-        return this.showLocationBar;
+    private boolean interceptNavigation(InAppBrowserWindow window, String url) {
+        InAppBrowserUrlMatcher matcher = window.interceptMatcher;
+        if (matcher == null) {
+            return false;
+        }
+        String pattern = matcher.match(url);
+        if (pattern == null) {
+            return false;
+        }
+        try {
+            JSONObject obj = new JSONObject();
+            obj.put("type", INTERCEPT_EVENT);
+            obj.put("url", url);
+            obj.put("pattern", pattern);
+            window.sendUpdate(obj, true, PluginResult.Status.OK);
+        } catch (JSONException ex) {
+            InAppBrowserLog.d(LOG_TAG, "Should never happen");
+        }
+        return true;
     }
 
     private InAppBrowser getInAppBrowser(){
@@ -461,230 +1222,136 @@ public class InAppBrowser extends CordovaPlugin {
     }
 
     /**
-     * Display a new browser with the specified URL.
+     * Create and register a new window from the list of features passed to open.
      *
-     * @param url the url to load.
-     * @param features jsonObject
-     */
-    public String showWebPage(final String url, HashMap<String, Boolean> features) {
-        // Determine if we should hide the location bar.
-        showLocationBar = true;
-        showZoomControls = true;
-        openWindowHidden = false;
-        if (features != null) {
-            Boolean show = features.get(LOCATION);
-            if (show != null) {
-                showLocationBar = show.booleanValue();
-            }
-            Boolean zoom = features.get(ZOOM);
-            if (zoom != null) {
-                showZoomControls = zoom.booleanValue();
-            }
-            Boolean hidden = features.get(HIDDEN);
-            if (hidden != null) {
-                openWindowHidden = hidden.booleanValue();
-            }
-            Boolean hardwareBack = features.get(HARDWARE_BACK_BUTTON);
-            if (hardwareBack != null) {
-                hadwareBackButton = hardwareBack.booleanValue();
-            }
-            Boolean cache = features.get(CLEAR_ALL_CACHE);
-            if (cache != null) {
-                clearAllCache = cache.booleanValue();
-            } else {
-                cache = features.get(CLEAR_SESSION_CACHE);
-                if (cache != null) {
-                    clearSessionCache = cache.booleanValue();
-                }
-            }
+     * @param id the window id
+     * @param features the parsed feature string
+     * @param callbackContext the callback which receives the window's events
+     * @return the new window
+     */
+    private InAppBrowserWindow createWindow(String id, InAppBrowserOptions features, CallbackContext callbackContext) {
+        boolean useJsInterface = features.getBoolean(JS_INTERFACE, false);
+
+        // @JavascriptInterface is only safe to use from API 17, older versions keep using prompt()
+        InAppBrowserBridge bridge = null;
+        if (useJsInterface && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            bridge = new InAppBrowserBridge(this.webView);
+        }
+        InAppBrowserWindow window = new InAppBrowserWindow(id, callbackContext, bridge);
+        window.options = features;
+        window.showLocationBar = features.getBoolean(LOCATION, window.showLocationBar);
+        window.showZoomControls = features.getBoolean(ZOOM, window.showZoomControls);
+        window.openWindowHidden = features.getBoolean(HIDDEN, window.openWindowHidden);
+        window.useResponseCache = features.getBoolean(RESPONSE_CACHE, useResponseCacheByDefault);
+        window.batchEvents = features.getBoolean(BATCH_EVENTS, window.batchEvents);
+        window.collapseRedirects = features.getBoolean(COLLAPSE_REDIRECTS, window.collapseRedirects);
+        window.prefetch = features.getBoolean(PREFETCH, window.prefetch);
+        window.hardwareBackButton = features.getBoolean(HARDWARE_BACK_BUTTON, window.hardwareBackButton);
+        if (features.has(CLEAR_ALL_CACHE)) {
+            window.clearAllCache = features.getBoolean(CLEAR_ALL_CACHE, false);
+        } else {
+            window.clearSessionCache = features.getBoolean(CLEAR_SESSION_CACHE, window.clearSessionCache);
         }
 
+        InAppBrowserWindow previous = windows.put(id, window);
+        if (previous != null) {
+            closeWindow(previous);
+        }
+        lastWindow = window;
+        return window;
+    }
+
+    /**
+     * Display a new browser with the specified URL.
+     *
+     * @param window the window to display the page in.
+     * @param url the url to load.
+     * @return the window id.
+     */
+    public String showWebPage(final InAppBrowserWindow window, final String url) {
         final CordovaWebView thatWebView = this.webView;
 
         // Create dialog in new thread
         Runnable runnable = new Runnable() {
-            /**
-             * Convert our DIP units to Pixels
-             *
-             * @return int
-             */
-            private int dpToPixels(int dipValue) {
-                int value = (int) TypedValue.applyDimension( TypedValue.COMPLEX_UNIT_DIP,
-                                                            (float) dipValue,
-                                                            cordova.getActivity().getResources().getDisplayMetrics()
-                );
-
-                return value;
-            }
-
             @SuppressLint("NewApi")
             public void run() {
+                if (window.closed) {
+                    return;
+                }
                 // Let's create the main dialog
-                dialog = new InAppBrowserDialog(cordova.getActivity(), android.R.style.Theme_NoTitleBar);
+                InAppBrowserDialog dialog = new InAppBrowserDialog(cordova.getActivity(), android.R.style.Theme_NoTitleBar);
                 dialog.getWindow().getAttributes().windowAnimations = android.R.style.Animation_Dialog;
                 dialog.requestWindowFeature(Window.FEATURE_NO_TITLE);
                 dialog.setCancelable(true);
                 dialog.setInAppBroswer(getInAppBrowser());
+                window.dialog = dialog;
+                window.timeline.mark(InAppBrowserMetrics.DIALOG_CREATED);
 
                 // Main container layout
                 LinearLayout main = new LinearLayout(cordova.getActivity());
                 main.setOrientation(LinearLayout.VERTICAL);
 
-                // Toolbar layout
-                RelativeLayout toolbar = new RelativeLayout(cordova.getActivity());
-                //Please, no more black!
-                toolbar.setBackgroundColor(android.graphics.Color.LTGRAY);
-                toolbar.setLayoutParams(new RelativeLayout.LayoutParams(LayoutParams.MATCH_PARENT, this.dpToPixels(44)));
-                toolbar.setPadding(this.dpToPixels(2), this.dpToPixels(2), this.dpToPixels(2), this.dpToPixels(2));
-                toolbar.setHorizontalGravity(Gravity.LEFT);
-                toolbar.setVerticalGravity(Gravity.TOP);
-
-                // Action Button Container layout
-                RelativeLayout actionButtonContainer = new RelativeLayout(cordova.getActivity());
-                actionButtonContainer.setLayoutParams(new RelativeLayout.LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT));
-                actionButtonContainer.setHorizontalGravity(Gravity.LEFT);
-                actionButtonContainer.setVerticalGravity(Gravity.CENTER_VERTICAL);
-                actionButtonContainer.setId(1);
-
-                // Back button
-                Button back = new Button(cordova.getActivity());
-                RelativeLayout.LayoutParams backLayoutParams = new RelativeLayout.LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.MATCH_PARENT);
-                backLayoutParams.addRule(RelativeLayout.ALIGN_LEFT);
-                back.setLayoutParams(backLayoutParams);
-                back.setContentDescription("Back Button");
-                back.setId(2);
-                Resources activityRes = cordova.getActivity().getResources();
-                int backResId = activityRes.getIdentifier("ic_action_previous_item", "drawable", cordova.getActivity().getPackageName());
-                Drawable backIcon = activityRes.getDrawable(backResId);
-                if(android.os.Build.VERSION.SDK_INT < android.os.Build.VERSION_CODES.JELLY_BEAN)
-                {
-                    back.setBackgroundDrawable(backIcon);
-                }
-                else
-                {
-                    back.setBackground(backIcon);
-                }
-                back.setOnClickListener(new View.OnClickListener() {
-                    public void onClick(View v) {
-                        goBack();
-                    }
-                });
-
-                // Forward button
-                Button forward = new Button(cordova.getActivity());
-                RelativeLayout.LayoutParams forwardLayoutParams = new RelativeLayout.LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.MATCH_PARENT);
-                forwardLayoutParams.addRule(RelativeLayout.RIGHT_OF, 2);
-                forward.setLayoutParams(forwardLayoutParams);
-                forward.setContentDescription("Forward Button");
-                forward.setId(3);
-                int fwdResId = activityRes.getIdentifier("ic_action_next_item", "drawable", cordova.getActivity().getPackageName());
-                Drawable fwdIcon = activityRes.getDrawable(fwdResId);
-                if(android.os.Build.VERSION.SDK_INT < android.os.Build.VERSION_CODES.JELLY_BEAN)
-                {
-                    forward.setBackgroundDrawable(fwdIcon);
-                }
-                else
-                {
-                    forward.setBackground(fwdIcon);
-                }
-                forward.setOnClickListener(new View.OnClickListener() {
-                    public void onClick(View v) {
-                        goForward();
-                    }
-                });
-
-                // Edit Text Box
-                edittext = new EditText(cordova.getActivity());
-                RelativeLayout.LayoutParams textLayoutParams = new RelativeLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
-                textLayoutParams.addRule(RelativeLayout.RIGHT_OF, 1);
-                textLayoutParams.addRule(RelativeLayout.LEFT_OF, 5);
-                edittext.setLayoutParams(textLayoutParams);
-                edittext.setId(4);
-                edittext.setSingleLine(true);
-                edittext.setText(url);
-                edittext.setInputType(InputType.TYPE_TEXT_VARIATION_URI);
-                edittext.setImeOptions(EditorInfo.IME_ACTION_GO);
-                edittext.setInputType(InputType.TYPE_NULL); // Will not except input... Makes the text NON-EDITABLE
-                edittext.setOnKeyListener(new View.OnKeyListener() {
-                    public boolean onKey(View v, int keyCode, KeyEvent event) {
-                        // If the event is a key-down event on the "enter" button
-                        if ((event.getAction() == KeyEvent.ACTION_DOWN) && (keyCode == KeyEvent.KEYCODE_ENTER)) {
-                          navigate(edittext.getText().toString());
-                          return true;
-                        }
-                        return false;
-                    }
-                });
-
-                // Close/Done button
-                Button close = new Button(cordova.getActivity());
-                RelativeLayout.LayoutParams closeLayoutParams = new RelativeLayout.LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.MATCH_PARENT);
-                closeLayoutParams.addRule(RelativeLayout.ALIGN_PARENT_RIGHT);
-                close.setLayoutParams(closeLayoutParams);
-                forward.setContentDescription("Close Button");
-                close.setId(5);
-                int closeResId = activityRes.getIdentifier("ic_action_remove", "drawable", cordova.getActivity().getPackageName());
-                Drawable closeIcon = activityRes.getDrawable(closeResId);
-                if(android.os.Build.VERSION.SDK_INT < android.os.Build.VERSION_CODES.JELLY_BEAN)
-                {
-                    close.setBackgroundDrawable(closeIcon);
-                }
-                else
-                {
-                    close.setBackground(closeIcon);
-                }
-                close.setOnClickListener(new View.OnClickListener() {
-                    public void onClick(View v) {
-                        closeDialog();
-                    }
-                });
+                // Toolbar, reused from the last closed window when possible
+                RelativeLayout toolbar = obtainToolbar(window);
+                window.edittext.setText(url);
 
-                // WebView
-                inAppWebView = new WebView(cordova.getActivity());
-                inAppWebView.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+                // WebView, taken from the pool of pre-configured views
+                final WebView inAppWebView = webViewPool.acquire();
+                window.webView = inAppWebView;
                 inAppWebView.setWebChromeClient(new InAppChromeClient(thatWebView));
-                WebViewClient client = new InAppBrowserClient(thatWebView, edittext);
+                InAppBrowserClient client = new InAppBrowserClient(thatWebView, window);
+                // A recycled view still remembers the about:blank it was parked on
+                client.clearHistoryOnLoad = true;
                 inAppWebView.setWebViewClient(client);
-                WebSettings settings = inAppWebView.getSettings();
-                settings.setJavaScriptEnabled(true);
-                settings.setJavaScriptCanOpenWindowsAutomatically(true);
-                settings.setBuiltInZoomControls(showZoomControls);
-                settings.setPluginState(android.webkit.WebSettings.PluginState.ON);
-
-                //Toggle whether this is enabled or not!
-                Bundle appSettings = cordova.getActivity().getIntent().getExtras();
-                boolean enableDatabase = appSettings == null ? true : appSettings.getBoolean("InAppBrowserStorageEnabled", true);
-                if (enableDatabase) {
-                    String databasePath = cordova.getActivity().getApplicationContext().getDir("inAppBrowserDB", Context.MODE_PRIVATE).getPath();
-                    settings.setDatabasePath(databasePath);
-                    settings.setDatabaseEnabled(true);
+                if (window.getBridge() != null) {
+                    inAppWebView.addJavascriptInterface(window.getBridge(), InAppBrowserBridge.NAME);
                 }
-                settings.setDomStorageEnabled(true);
+                WebSettings settings = inAppWebView.getSettings();
+                settings.setBuiltInZoomControls(window.showZoomControls);
+                settings.setLoadsImagesAutomatically(window.options.getBoolean(LOAD_IMAGES, true));
+                updateCacheMode(window);
 
-                if (clearAllCache) {
-                    CookieManager.getInstance().removeAllCookie();
-                } else if (clearSessionCache) {
-                    CookieManager.getInstance().removeSessionCookie();
+                if (window.options.getBoolean(CLEAR_HTTP_CACHE, false)) {
+                    // The WebView's HTTP cache is shared by every WebView of the app
+                    inAppWebView.clearCache(true);
                 }
 
-                inAppWebView.loadUrl(url);
+                final Runnable load = new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!window.closed && !interceptNavigation(window, url)) {
+                            window.timeline.mark(InAppBrowserMetrics.LOAD_URL);
+                            inAppWebView.loadUrl(url);
+                        }
+                    }
+                };
+                if ((window.clearAllCache || window.clearSessionCache) && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                    // Start loading once the cookies are gone, without blocking the UI thread
+                    ValueCallback<Boolean> removed = new ValueCallback<Boolean>() {
+                        @Override
+                        public void onReceiveValue(Boolean value) {
+                            load.run();
+                        }
+                    };
+                    if (window.clearAllCache) {
+                        CookieManager.getInstance().removeAllCookies(removed);
+                    } else {
+                        CookieManager.getInstance().removeSessionCookies(removed);
+                    }
+                } else {
+                    if (window.clearAllCache) {
+                        CookieManager.getInstance().removeAllCookie();
+                    } else if (window.clearSessionCache) {
+                        CookieManager.getInstance().removeSessionCookie();
+                    }
+                    load.run();
+                }
                 inAppWebView.setId(6);
-                inAppWebView.getSettings().setLoadWithOverviewMode(true);
-                inAppWebView.getSettings().setUseWideViewPort(true);
                 inAppWebView.requestFocus();
                 inAppWebView.requestFocusFromTouch();
 
-                // Add the back and forward buttons to our action button container layout
-                actionButtonContainer.addView(back);
-                actionButtonContainer.addView(forward);
-
-                // Add the views to our toolbar
-                toolbar.addView(actionButtonContainer);
-                toolbar.addView(edittext);
-                toolbar.addView(close);
-
                 // Don't add the toolbar if its been disabled
-                if (getShowLocationBar()) {
+                if (window.showLocationBar) {
                     // Add our toolbar to our main view/layout
                     main.addView(toolbar);
                 }
@@ -700,41 +1367,203 @@ public class InAppBrowser extends CordovaPlugin {
                 dialog.setContentView(main);
                 dialog.show();
                 dialog.getWindow().setAttributes(lp);
+                if (window.prefetch) {
+                    // Like openhidden, the WebView only loads once it is attached to a
+                    // window, so the dialog is shown and hidden right away. It stays hidden
+                    // until the show action.
+                    dialog.hide();
+                    prerendered.put(window.getId(), window);
+                    evictPrerenders(maxPrerenders);
+                    return;
+                }
+                window.timeline.mark(InAppBrowserMetrics.SHOWN);
                 // the goal of openhidden is to load the url and not display it
                 // Show() needs to be called to cause the URL to be loaded
-                if(openWindowHidden) {
+                if(window.openWindowHidden) {
                     dialog.hide();
+                } else {
+                    visibleWindows.add(window);
                 }
             }
         };
         this.cordova.getActivity().runOnUiThread(runnable);
-        return "";
+        return window.getId();
     }
 
     /**
-     * Create a new plugin success result and send it back to JavaScript
+     * Return a toolbar for a new window, reusing the one parked by the last closed window
+     * if it was built for the current configuration, and bind its buttons to the window.
      *
-     * @param obj a JSONObject contain event payload information
+     * Must be called on the UI thread.
+     *
+     * @param window the window the toolbar is for
+     * @return a toolbar without a parent
      */
-    private void sendUpdate(JSONObject obj, boolean keepCallback) {
-        sendUpdate(obj, keepCallback, PluginResult.Status.OK);
+    private RelativeLayout obtainToolbar(InAppBrowserWindow window) {
+        RelativeLayout toolbar = recycledToolbar;
+        recycledToolbar = null;
+        if (toolbar == null || !resources.isValid()) {
+            toolbar = createToolbar();
+        }
+        bindToolbar(toolbar, window);
+        return toolbar;
     }
 
     /**
-     * Create a new plugin result and send it back to JavaScript
+     * Park a closed window's toolbar so the next window can reuse it.
+     *
+     * Must be called on the UI thread.
      *
-     * @param obj a JSONObject contain event payload information
-     * @param status the status code to return to the JavaScript environment
+     * @param oldToolbar the toolbar of the window that was closed
      */
-    private void sendUpdate(JSONObject obj, boolean keepCallback, PluginResult.Status status) {
-        if (callbackContext != null) {
-            PluginResult result = new PluginResult(status, obj);
-            result.setKeepCallback(keepCallback);
-            callbackContext.sendPluginResult(result);
-            if (!keepCallback) {
-                callbackContext = null;
+    private void recycleToolbar(RelativeLayout oldToolbar) {
+        if (oldToolbar == null || !resources.isValid()) {
+            return;
+        }
+        if (oldToolbar.getParent() instanceof ViewGroup) {
+            ((ViewGroup) oldToolbar.getParent()).removeView(oldToolbar);
+        }
+        // The listeners point at the closed window
+        oldToolbar.findViewById(2).setOnClickListener(null);
+        oldToolbar.findViewById(3).setOnClickListener(null);
+        oldToolbar.findViewById(4).setOnKeyListener(null);
+        oldToolbar.findViewById(5).setOnClickListener(null);
+        recycledToolbar = oldToolbar;
+    }
+
+    /**
+     * Point the toolbar's buttons and location field at a window.
+     *
+     * @param toolbar a toolbar built by {@link #createToolbar()}
+     * @param window the window which owns the toolbar from now on
+     */
+    private void bindToolbar(RelativeLayout toolbar, final InAppBrowserWindow window) {
+        window.toolbar = toolbar;
+        //Please, no more black!
+        toolbar.setBackgroundColor(window.options.getColor(TOOLBAR_COLOR, android.graphics.Color.LTGRAY));
+        window.edittext = (EditText) toolbar.findViewById(4);
+        toolbar.findViewById(2).setOnClickListener(new View.OnClickListener() {
+            public void onClick(View v) {
+                window.goBack();
+            }
+        });
+        toolbar.findViewById(3).setOnClickListener(new View.OnClickListener() {
+            public void onClick(View v) {
+                window.goForward();
             }
+        });
+        window.edittext.setOnKeyListener(new View.OnKeyListener() {
+            public boolean onKey(View v, int keyCode, KeyEvent event) {
+                // If the event is a key-down event on the "enter" button
+                if ((event.getAction() == KeyEvent.ACTION_DOWN) && (keyCode == KeyEvent.KEYCODE_ENTER)) {
+                  navigate(window, window.edittext.getText().toString());
+                  return true;
+                }
+                return false;
+            }
+        });
+        toolbar.findViewById(5).setOnClickListener(new View.OnClickListener() {
+            public void onClick(View v) {
+                closeWindow(window);
+            }
+        });
+    }
+
+    /**
+     * Build the toolbar view hierarchy, using the cached icons and dimensions. The
+     * buttons are wired up by {@link #bindToolbar}.
+     *
+     * @return a new toolbar
+     */
+    @SuppressLint("NewApi")
+    private RelativeLayout createToolbar() {
+        // Toolbar layout
+        RelativeLayout toolbar = new RelativeLayout(cordova.getActivity());
+        toolbar.setLayoutParams(new RelativeLayout.LayoutParams(LayoutParams.MATCH_PARENT, resources.getToolbarHeight()));
+        int padding = resources.getToolbarPadding();
+        toolbar.setPadding(padding, padding, padding, padding);
+        toolbar.setHorizontalGravity(Gravity.LEFT);
+        toolbar.setVerticalGravity(Gravity.TOP);
+
+        // Action Button Container layout
+        RelativeLayout actionButtonContainer = new RelativeLayout(cordova.getActivity());
+        actionButtonContainer.setLayoutParams(new RelativeLayout.LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT));
+        actionButtonContainer.setHorizontalGravity(Gravity.LEFT);
+        actionButtonContainer.setVerticalGravity(Gravity.CENTER_VERTICAL);
+        actionButtonContainer.setId(1);
+
+        // Back button
+        Button back = new Button(cordova.getActivity());
+        RelativeLayout.LayoutParams backLayoutParams = new RelativeLayout.LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.MATCH_PARENT);
+        backLayoutParams.addRule(RelativeLayout.ALIGN_LEFT);
+        back.setLayoutParams(backLayoutParams);
+        back.setContentDescription("Back Button");
+        back.setId(2);
+        Drawable backIcon = resources.newBackIcon();
+        if(android.os.Build.VERSION.SDK_INT < android.os.Build.VERSION_CODES.JELLY_BEAN)
+        {
+            back.setBackgroundDrawable(backIcon);
+        }
+        else
+        {
+            back.setBackground(backIcon);
+        }
+
+        // Forward button
+        Button forward = new Button(cordova.getActivity());
+        RelativeLayout.LayoutParams forwardLayoutParams = new RelativeLayout.LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.MATCH_PARENT);
+        forwardLayoutParams.addRule(RelativeLayout.RIGHT_OF, 2);
+        forward.setLayoutParams(forwardLayoutParams);
+        forward.setContentDescription("Forward Button");
+        forward.setId(3);
+        Drawable fwdIcon = resources.newForwardIcon();
+        if(android.os.Build.VERSION.SDK_INT < android.os.Build.VERSION_CODES.JELLY_BEAN)
+        {
+            forward.setBackgroundDrawable(fwdIcon);
         }
+        else
+        {
+            forward.setBackground(fwdIcon);
+        }
+
+        // Edit Text Box
+        EditText locationText = new EditText(cordova.getActivity());
+        RelativeLayout.LayoutParams textLayoutParams = new RelativeLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
+        textLayoutParams.addRule(RelativeLayout.RIGHT_OF, 1);
+        textLayoutParams.addRule(RelativeLayout.LEFT_OF, 5);
+        locationText.setLayoutParams(textLayoutParams);
+        locationText.setId(4);
+        locationText.setSingleLine(true);
+        locationText.setInputType(InputType.TYPE_TEXT_VARIATION_URI);
+        locationText.setImeOptions(EditorInfo.IME_ACTION_GO);
+        locationText.setInputType(InputType.TYPE_NULL); // Will not except input... Makes the text NON-EDITABLE
+
+        // Close/Done button
+        Button close = new Button(cordova.getActivity());
+        RelativeLayout.LayoutParams closeLayoutParams = new RelativeLayout.LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.MATCH_PARENT);
+        closeLayoutParams.addRule(RelativeLayout.ALIGN_PARENT_RIGHT);
+        close.setLayoutParams(closeLayoutParams);
+        forward.setContentDescription("Close Button");
+        close.setId(5);
+        Drawable closeIcon = resources.newCloseIcon();
+        if(android.os.Build.VERSION.SDK_INT < android.os.Build.VERSION_CODES.JELLY_BEAN)
+        {
+            close.setBackgroundDrawable(closeIcon);
+        }
+        else
+        {
+            close.setBackground(closeIcon);
+        }
+
+        // Add the back and forward buttons to our action button container layout
+        actionButtonContainer.addView(back);
+        actionButtonContainer.addView(forward);
+
+        // Add the views to our toolbar
+        toolbar.addView(actionButtonContainer);
+        toolbar.addView(locationText);
+        toolbar.addView(close);
+        return toolbar;
     }
 
     /**
@@ -743,16 +1572,76 @@ public class InAppBrowser extends CordovaPlugin {
     public class InAppBrowserClient extends WebViewClient {
         EditText edittext;
         CordovaWebView webView;
+        InAppBrowserWindow window;
+        InAppBrowserBridge bridge;
+        boolean clearHistoryOnLoad = false;
+
+        // With collapseredirects, the loadstart not sent yet and the urls it redirected from
+        private final Handler handler = new Handler(Looper.getMainLooper());
+        private String pendingLoadStart;
+        // The page being shown, read on the network thread to tell first-party requests
+        private volatile String pageUrl;
+        private final ArrayList<String> redirects = new ArrayList<String>();
+        private final Runnable loadStartFlusher = new Runnable() {
+            public void run() {
+                flushLoadStart();
+            }
+        };
 
         /**
          * Constructor.
          *
          * @param webView
-         * @param mEditText
+         * @param window
          */
-        public InAppBrowserClient(CordovaWebView webView, EditText mEditText) {
+        public InAppBrowserClient(CordovaWebView webView, InAppBrowserWindow window) {
             this.webView = webView;
-            this.edittext = mEditText;
+            this.window = window;
+            this.edittext = window.edittext;
+            this.bridge = window.getBridge();
+        }
+
+        @Override
+        public WebResourceResponse shouldInterceptRequest(WebView view, String url) {
+            return interceptRequest("GET", url, Collections.<String, String>emptyMap(), false);
+        }
+
+        @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+        @Override
+        public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+            return interceptRequest(request.getMethod(), request.getUrl().toString(), request.getRequestHeaders(),
+                    request.isForMainFrame());
+        }
+
+        /**
+         * Offer a request to the registered interceptors, then to the response cache.
+         * Called on the WebView's network thread.
+         */
+        private WebResourceResponse interceptRequest(String method, String url, Map<String, String> headers,
+                                                     boolean mainFrame) {
+            for (InAppBrowserRequestInterceptor interceptor : requestInterceptors) {
+                WebResourceResponse response = interceptor.intercept(method, url, headers);
+                if (response != null) {
+                    return response;
+                }
+            }
+            if (window.useResponseCache) {
+                return responseCache.intercept(method, url, headers, mainFrame ? url : pageUrl);
+            }
+            return null;
+        }
+
+        /**
+         * Cancel navigations matching the window's intercept patterns, and hand urls with
+         * an external scheme to their app.
+         */
+        @Override
+        public boolean shouldOverrideUrlLoading(WebView view, String url) {
+            if (interceptNavigation(window, url)) {
+                return true;
+            }
+            // tel:, mailto: and the other external schemes never load in the WebView
+            return InAppBrowserSchemeHandlers.dispatch(cordova, url);
         }
 
         /**
@@ -764,108 +1653,110 @@ public class InAppBrowser extends CordovaPlugin {
         @Override
         public void onPageStarted(WebView view, String url,  Bitmap favicon) {
             super.onPageStarted(view, url, favicon);
+            // Some navigations, such as redirects on older versions, skip shouldOverrideUrlLoading
+            if (interceptNavigation(window, url)) {
+                view.stopLoading();
+                return;
+            }
+            window.timeline.mark(InAppBrowserMetrics.PAGE_STARTED);
             String newloc = "";
             if (url.startsWith("http:") || url.startsWith("https:") || url.startsWith("file:")) {
                 newloc = url;
             }
-            // If dialing phone (tel:5551212)
-            else if (url.startsWith(WebView.SCHEME_TEL)) {
-                try {
-                    Intent intent = new Intent(Intent.ACTION_DIAL);
-                    intent.setData(Uri.parse(url));
-                    cordova.getActivity().startActivity(intent);
-                } catch (android.content.ActivityNotFoundException e) {
-                    LOG.e(LOG_TAG, "Error dialing " + url + ": " + e.toString());
-                }
-            }
-
-            else if (url.startsWith("geo:") || url.startsWith(WebView.SCHEME_MAILTO) || url.startsWith("market:")) {
-                try {
-                    Intent intent = new Intent(Intent.ACTION_VIEW);
-                    intent.setData(Uri.parse(url));
-                    cordova.getActivity().startActivity(intent);
-                } catch (android.content.ActivityNotFoundException e) {
-                    LOG.e(LOG_TAG, "Error with " + url + ": " + e.toString());
-                }
-            }
-            // If sms:5551212?body=This is the message
-            else if (url.startsWith("sms:")) {
-                try {
-                    Intent intent = new Intent(Intent.ACTION_VIEW);
-
-                    // Get address
-                    String address = null;
-                    int parmIndex = url.indexOf('?');
-                    if (parmIndex == -1) {
-                        address = url.substring(4);
-                    }
-                    else {
-                        address = url.substring(4, parmIndex);
-
-                        // If body, then set sms body
-                        Uri uri = Uri.parse(url);
-                        String query = uri.getQuery();
-                        if (query != null) {
-                            if (query.startsWith("body=")) {
-                                intent.putExtra("sms_body", query.substring(5));
-                            }
-                        }
-                    }
-                    intent.setData(Uri.parse("sms:" + address));
-                    intent.putExtra("address", address);
-                    intent.setType("vnd.android-dir/mms-sms");
-                    cordova.getActivity().startActivity(intent);
-                } catch (android.content.ActivityNotFoundException e) {
-                    LOG.e(LOG_TAG, "Error sending sms " + url + ":" + e.toString());
-                }
+            // Normally caught by shouldOverrideUrlLoading, before the load starts
+            else if (InAppBrowserSchemeHandlers.dispatch(cordova, url)) {
+                view.stopLoading();
             }
             else {
                 newloc = "http://" + url;
             }
 
+            pageUrl = url;
+            if (bridge != null) {
+                // Results requested from the previous page can no longer arrive
+                bridge.clearPending();
+                bridge.setCurrentUrl(url);
+            }
+
             if (!newloc.equals(edittext.getText().toString())) {
                 edittext.setText(newloc);
             }
 
-            try {
-                JSONObject obj = new JSONObject();
-                obj.put("type", LOAD_START_EVENT);
-                obj.put("url", newloc);
+            queueLoadStart(newloc);
+        }
 
-                sendUpdate(obj, true);
-            } catch (JSONException ex) {
-                Log.d(LOG_TAG, "Should never happen");
+        /**
+         * Send a loadstart event, or with collapseredirects hold it back until no other
+         * page has started for the debounce time, the page has finished or failed. Pages
+         * started in the meantime are treated as redirects: only the last one is sent,
+         * with the others listed in its redirects array.
+         *
+         * @param url the url of the page that started loading
+         */
+        private void queueLoadStart(String url) {
+            if (!window.collapseRedirects) {
+                window.sendEvent(LOAD_START_EVENT, url, 0, null, PluginResult.Status.OK, true);
+                return;
+            }
+            if (pendingLoadStart != null) {
+                redirects.add(pendingLoadStart);
+                handler.removeCallbacks(loadStartFlusher);
+            }
+            pendingLoadStart = url;
+            if (loadStartDebounce > 0) {
+                handler.postDelayed(loadStartFlusher, loadStartDebounce);
             }
         }
 
+        /**
+         * Send the loadstart held back by {@link #queueLoadStart}, if any.
+         */
+        private void flushLoadStart() {
+            if (pendingLoadStart == null) {
+                return;
+            }
+            handler.removeCallbacks(loadStartFlusher);
+            window.sendEvent(LOAD_START_EVENT, pendingLoadStart, 0, null, redirects, PluginResult.Status.OK, true);
+            pendingLoadStart = null;
+            redirects.clear();
+        }
+
         public void onPageFinished(WebView view, String url) {
             super.onPageFinished(view, url);
 
-            try {
-                JSONObject obj = new JSONObject();
-                obj.put("type", LOAD_STOP_EVENT);
-                obj.put("url", url);
+            if (clearHistoryOnLoad) {
+                clearHistoryOnLoad = false;
+                view.clearHistory();
+            }
 
-                sendUpdate(obj, true);
-            } catch (JSONException ex) {
-                Log.d(LOG_TAG, "Should never happen");
+            flushLoadStart();
+            window.sendEvent(LOAD_STOP_EVENT, url, 0, null, PluginResult.Status.OK, true);
+
+            // Hidden and prefetched windows sit idle until they are shown
+            if (!window.closed && !visibleWindows.contains(window)) {
+                window.throttled = true;
+                window.pause();
+            }
+
+            if (window.timeline.mark(InAppBrowserMetrics.PAGE_FINISHED)) {
+                metrics.record(window.timeline);
+                try {
+                    JSONObject obj = new JSONObject();
+                    obj.put("type", METRICS_EVENT);
+                    obj.put("url", url);
+                    obj.put("phases", window.timeline.toJSON());
+                    window.sendUpdate(obj, true, PluginResult.Status.OK);
+                } catch (JSONException ex) {
+                    InAppBrowserLog.d(LOG_TAG, "Should never happen");
+                }
             }
         }
 
         public void onReceivedError(WebView view, int errorCode, String description, String failingUrl) {
             super.onReceivedError(view, errorCode, description, failingUrl);
 
-            try {
-                JSONObject obj = new JSONObject();
-                obj.put("type", LOAD_ERROR_EVENT);
-                obj.put("url", failingUrl);
-                obj.put("code", errorCode);
-                obj.put("message", description);
-
-                sendUpdate(obj, true, PluginResult.Status.ERROR);
-            } catch (JSONException ex) {
-                Log.d(LOG_TAG, "Should never happen");
-            }
+            flushLoadStart();
+            window.sendEvent(LOAD_ERROR_EVENT, failingUrl, errorCode, description, PluginResult.Status.ERROR, true);
         }
         
         /**
@@ -875,24 +1766,8 @@ public class InAppBrowser extends CordovaPlugin {
         public void onReceivedHttpAuthRequest(WebView view, HttpAuthHandler handler, String host, String realm) {
 
             // Check if there is some plugin which can resolve this auth challenge
-            PluginManager pluginManager = null;
-            try {
-                Method gpm = webView.getClass().getMethod("getPluginManager");
-                pluginManager = (PluginManager)gpm.invoke(webView);
-            } catch (NoSuchMethodException e) {
-            } catch (IllegalAccessException e) {
-            } catch (InvocationTargetException e) {
-            }
-            
-            if (pluginManager == null) {
-                try {
-                    Field pmf = webView.getClass().getField("pluginManager");
-                    pluginManager = (PluginManager)pmf.get(webView);
-                } catch (NoSuchFieldException e) {
-                } catch (IllegalAccessException e) {
-                }
-            }
-            
+            PluginManager pluginManager = CordovaCompat.getPluginManager(webView);
+
             if (pluginManager != null && pluginManager.onReceivedHttpAuthRequest(webView, new CordovaHttpAuthHandler(handler), host, realm)) {
                 return;
             }
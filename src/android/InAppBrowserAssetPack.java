@@ -0,0 +1,215 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import android.webkit.WebResourceResponse;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * A read-only, memory-mapped archive of web assets.
+ *
+ * The file starts with the 8 byte magic "IABPACK1" and the length of the index as a
+ * big-endian 32 bit integer, followed by the index and then the data. The index is
+ * UTF-8 JSON:
+ *
+ * {"version": "42", "entries": {"https://example.com/app.js": {"offset": 0, "length": 1234,
+ *   "mimeType": "application/javascript", "encoding": "utf-8"}}}
+ *
+ * Offsets are relative to the first byte after the index. Responses read straight from
+ * the mapping, so serving an asset does not copy it.
+ */
+public class InAppBrowserAssetPack {
+
+    private static final byte[] MAGIC = { 'I', 'A', 'B', 'P', 'A', 'C', 'K', '1' };
+
+    private static final class Entry {
+        final int offset;
+        final int length;
+        final String mimeType;
+        final String encoding;
+
+        Entry(int offset, int length, String mimeType, String encoding) {
+            this.offset = offset;
+            this.length = length;
+            this.mimeType = mimeType;
+            this.encoding = encoding;
+        }
+    }
+
+    /**
+     * Reads one slice of the mapping. Each stream has its own view of the buffer, so
+     * any number of them can be read concurrently.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    private final String version;
+    private final MappedByteBuffer data;
+    private final HashMap<String, Entry> entries;
+
+    private InAppBrowserAssetPack(String version, MappedByteBuffer data, HashMap<String, Entry> entries) {
+        this.version = version;
+        this.data = data;
+        this.entries = entries;
+    }
+
+    /**
+     * Map a pack file and read its index.
+     *
+     * @param file the pack
+     * @return the pack
+     * @throws IOException if the file cannot be read or is not a valid pack
+     */
+    public static InAppBrowserAssetPack load(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        MappedByteBuffer mapped;
+        try {
+            FileChannel channel = raf.getChannel();
+            // The mapping stays valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            raf.close();
+        }
+
+        if (mapped.remaining() < MAGIC.length + 4) {
+            throw new IOException("Not an asset pack: " + file);
+        }
+        for (byte b : MAGIC) {
+            if (mapped.get() != b) {
+                throw new IOException("Not an asset pack: " + file);
+            }
+        }
+        int indexLength = mapped.getInt();
+        if (indexLength < 0 || indexLength > mapped.remaining()) {
+            throw new IOException("Corrupt asset pack index: " + file);
+        }
+        byte[] indexBytes = new byte[indexLength];
+        mapped.get(indexBytes);
+        int dataStart = mapped.position();
+        int dataLength = mapped.limit() - dataStart;
+
+        HashMap<String, Entry> entries = new HashMap<String, Entry>();
+        String version;
+        try {
+            JSONObject index = new JSONObject(new String(indexBytes, "UTF-8"));
+            version = index.optString("version");
+            JSONObject list = index.getJSONObject("entries");
+            Iterator<String> urls = list.keys();
+            while (urls.hasNext()) {
+                String url = urls.next();
+                JSONObject entry = list.getJSONObject(url);
+                int offset = entry.getInt("offset");
+                int length = entry.getInt("length");
+                if (offset < 0 || length < 0 || offset > dataLength - length) {
+                    throw new IOException("Asset pack entry out of bounds: " + url);
+                }
+                entries.put(url, new Entry(dataStart + offset, length,
+                        entry.optString("mimeType", "application/octet-stream"),
+                        entry.has("encoding") ? entry.getString("encoding") : null));
+            }
+        } catch (JSONException e) {
+            throw new IOException("Corrupt asset pack index: " + file + ": " + e.getMessage());
+        }
+        return new InAppBrowserAssetPack(version, mapped, entries);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Look up an asset. The fragment of the url is ignored, and the query string is only
+     * ignored when there is no entry for the url including it.
+     *
+     * @param url the requested url
+     * @return a response reading from the pack, or null if the pack does not contain the url
+     */
+    public WebResourceResponse getResponse(String url) {
+        int hash = url.indexOf('#');
+        if (hash >= 0) {
+            url = url.substring(0, hash);
+        }
+        Entry entry = entries.get(url);
+        if (entry == null) {
+            int query = url.indexOf('?');
+            if (query < 0) {
+                return null;
+            }
+            entry = entries.get(url.substring(0, query));
+            if (entry == null) {
+                return null;
+            }
+        }
+        ByteBuffer slice = data.duplicate();
+        slice.limit(entry.offset + entry.length);
+        slice.position(entry.offset);
+        return new WebResourceResponse(entry.mimeType, entry.encoding, new ByteBufferInputStream(slice.slice()));
+    }
+}
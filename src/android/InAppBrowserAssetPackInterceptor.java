@@ -0,0 +1,75 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import android.webkit.WebResourceResponse;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Answers GET requests for a set of url prefixes from the current asset pack.
+ *
+ * The pack can be replaced at any time with {@link #swap}. Requests already being
+ * answered keep reading from the pack they started with, later ones use the new one.
+ */
+public class InAppBrowserAssetPackInterceptor implements InAppBrowserRequestInterceptor {
+
+    private final AtomicReference<InAppBrowserAssetPack> pack = new AtomicReference<InAppBrowserAssetPack>();
+    private volatile String[] prefixes;
+
+    /**
+     * @param prefixes the url prefixes, such as "https://portal.example.com/", served from the pack
+     */
+    public InAppBrowserAssetPackInterceptor(String[] prefixes) {
+        this.prefixes = prefixes.clone();
+    }
+
+    /**
+     * Replace the pack.
+     *
+     * @param newPack the pack to serve from now on, or null to stop serving
+     * @return the previous pack, or null
+     */
+    public InAppBrowserAssetPack swap(InAppBrowserAssetPack newPack) {
+        return pack.getAndSet(newPack);
+    }
+
+    public InAppBrowserAssetPack getPack() {
+        return pack.get();
+    }
+
+    public void setPrefixes(String[] prefixes) {
+        this.prefixes = prefixes.clone();
+    }
+
+    @Override
+    public WebResourceResponse intercept(String method, String url, Map<String, String> headers) {
+        InAppBrowserAssetPack current = pack.get();
+        if (current == null || !"GET".equalsIgnoreCase(method)) {
+            return null;
+        }
+        for (String prefix : prefixes) {
+            if (url.startsWith(prefix)) {
+                return current.getResponse(url);
+            }
+        }
+        return null;
+    }
+}
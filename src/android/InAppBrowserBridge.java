@@ -0,0 +1,148 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import android.net.Uri;
+import android.webkit.JavascriptInterface;
+
+import org.apache.cordova.CordovaWebView;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Result channel for injected scripts based on an injected JavaScript object, used in
+ * place of the synchronous prompt() bridge on API 17 and newer.
+ *
+ * Injected wrappers call:
+ *
+ * _cdvIabBridge.post(<token>, <callbackId>, <message>)
+ *
+ * The token is a random value generated per window and only ever embedded in scripts
+ * injected by the plugin. In addition, a result is only accepted for a callback id that
+ * was registered when its script was injected, and only while the window is still on
+ * the origin it was on at that time. The message is handled exactly as the prompt
+ * message of the gap-iab:// bridge.
+ *
+ * The token only keeps out pages that never see an injected script. Page script can
+ * replace _cdvIabBridge with a wrapper that records the token of the next call, so it
+ * is not a security boundary against the page itself.
+ *
+ * Callback ids registered for a page are dropped when the next page starts loading and
+ * when the window closes, so results that never arrive do not accumulate.
+ */
+public class InAppBrowserBridge {
+
+    public static final String NAME = "_cdvIabBridge";
+    private static final String LOG_TAG = "InAppBrowserBridge";
+    private static final String NO_ORIGIN = "";
+
+    private final CordovaWebView webView;
+    private final String token;
+    private final ConcurrentHashMap<String, String> pending = new ConcurrentHashMap<String, String>();
+    private volatile String currentOrigin = NO_ORIGIN;
+
+    public InAppBrowserBridge(CordovaWebView webView) {
+        this.webView = webView;
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        this.token = hex.toString();
+    }
+
+    /**
+     * Record the url the window is navigating to, so that results are only accepted
+     * from the origin they were requested on.
+     *
+     * @param url the url of the page that started loading
+     */
+    public void setCurrentUrl(String url) {
+        Uri uri = Uri.parse(url);
+        String scheme = uri.getScheme();
+        String host = uri.getHost();
+        currentOrigin = (scheme == null ? "" : scheme) + "://" + (host == null ? "" : host);
+    }
+
+    /**
+     * Forget every callback id still waiting for a result. Results sent for them later
+     * are ignored.
+     */
+    public void clearPending() {
+        pending.clear();
+    }
+
+    /**
+     * Build the JavaScript statement that sends a result back through this bridge.
+     *
+     * @param callbackId     the callback to send the result to
+     * @param valueExpression a JavaScript expression evaluating to the JSON-encoded message
+     * @return a JavaScript expression
+     */
+    public String resultCall(String callbackId, String valueExpression) {
+        pending.put(callbackId, currentOrigin);
+        return NAME + ".post('" + token + "', '" + callbackId + "', " + valueExpression + ")";
+    }
+
+    @JavascriptInterface
+    public void post(String token, String callbackId, String message) {
+        if (!this.token.equals(token) || callbackId == null) {
+            InAppBrowserLog.w(LOG_TAG, "Ignoring result with an invalid token");
+            return;
+        }
+        String origin = pending.remove(callbackId);
+        if (origin == null || !origin.equals(currentOrigin)) {
+            InAppBrowserLog.w(LOG_TAG, "Ignoring result for %s from a different origin", callbackId);
+            return;
+        }
+        InAppChromeClient.sendScriptResult(webView, callbackId, message);
+    }
+
+    /**
+     * Build the JavaScript statement that sends one chunk of a streamed result back
+     * through this bridge.
+     *
+     * @param callbackId      the callback to send the chunk to
+     * @param indexExpression a JavaScript expression evaluating to the chunk index
+     * @param countExpression a JavaScript expression evaluating to the number of chunks
+     * @param chunkExpression a JavaScript expression evaluating to the chunk text
+     * @return a JavaScript expression
+     */
+    public String chunkCall(String callbackId, String indexExpression, String countExpression, String chunkExpression) {
+        pending.put(callbackId, currentOrigin);
+        return NAME + ".postChunk('" + token + "', '" + callbackId + "', " + indexExpression + ", "
+                + countExpression + ", " + chunkExpression + ")";
+    }
+
+    @JavascriptInterface
+    public void postChunk(String token, String callbackId, int index, int count, String chunk) {
+        if (!this.token.equals(token) || callbackId == null) {
+            InAppBrowserLog.w(LOG_TAG, "Ignoring result with an invalid token");
+            return;
+        }
+        String origin = index == count - 1 ? pending.remove(callbackId) : pending.get(callbackId);
+        if (origin == null || !origin.equals(currentOrigin)) {
+            InAppBrowserLog.w(LOG_TAG, "Ignoring result for %s from a different origin", callbackId);
+            return;
+        }
+        InAppChromeClient.sendScriptChunk(webView, callbackId, index, count, chunk);
+    }
+}
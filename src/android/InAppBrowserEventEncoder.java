@@ -0,0 +1,153 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import java.util.List;
+
+/**
+ * Writes window events as JSON text into one reusable buffer.
+ *
+ * Events are appended with {@link #begin}, the put methods and {@link #end}, and
+ * {@link #drain()} returns everything written since the last drain: a single object for
+ * one event, an array for several. Nothing here depends on Android or Cordova. Not
+ * thread safe.
+ */
+public class InAppBrowserEventEncoder {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // Always starts with the '[' of a batch, which is skipped for a single event
+    private final StringBuilder buffer = new StringBuilder(512).append('[');
+    private int count = 0;
+
+    /**
+     * Start an event.
+     *
+     * @param type the event type
+     * @return this encoder
+     */
+    public InAppBrowserEventEncoder begin(String type) {
+        if (count++ > 0) {
+            buffer.append(',');
+        }
+        buffer.append("{\"type\":");
+        appendQuoted(buffer, type);
+        return this;
+    }
+
+    public InAppBrowserEventEncoder put(String name, String value) {
+        buffer.append(',');
+        appendQuoted(buffer, name);
+        buffer.append(':');
+        if (value == null) {
+            buffer.append("null");
+        } else {
+            appendQuoted(buffer, value);
+        }
+        return this;
+    }
+
+    public InAppBrowserEventEncoder put(String name, int value) {
+        buffer.append(',');
+        appendQuoted(buffer, name);
+        buffer.append(':').append(value);
+        return this;
+    }
+
+    public InAppBrowserEventEncoder put(String name, List<String> values) {
+        buffer.append(',');
+        appendQuoted(buffer, name);
+        buffer.append(':').append('[');
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                buffer.append(',');
+            }
+            appendQuoted(buffer, values.get(i));
+        }
+        buffer.append(']');
+        return this;
+    }
+
+    /**
+     * Finish the current event.
+     */
+    public void end() {
+        buffer.append('}');
+    }
+
+    /**
+     * The number of events written since the last drain.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Return the events written since the last drain and reset the buffer.
+     *
+     * @return the JSON text of the event, or of an array of the events if there are
+     *         several, or null if there are none
+     */
+    public String drain() {
+        String json;
+        if (count == 0) {
+            return null;
+        } else if (count == 1) {
+            json = buffer.substring(1);
+        } else {
+            json = buffer.append(']').toString();
+        }
+        buffer.setLength(1);
+        count = 0;
+        return json;
+    }
+
+    /**
+     * Append a string as a JSON string literal.
+     *
+     * @param out the buffer to append to
+     * @param value the string
+     */
+    public static void appendQuoted(StringBuilder out, String value) {
+        out.append('"');
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            // U+2028 and U+2029 are valid in JSON but end the line in older JavaScript engines
+            if (c >= 0x20 && c != '"' && c != '\\' && c != '\u2028' && c != '\u2029') {
+                continue;
+            }
+            out.append(value, start, i);
+            start = i + 1;
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    out.append("\\u").append(HEX[(c >> 12) & 0xf]).append(HEX[(c >> 8) & 0xf])
+                       .append(HEX[(c >> 4) & 0xf]).append(HEX[c & 0xf]);
+            }
+        }
+        out.append(value, start, length);
+        out.append('"');
+    }
+}
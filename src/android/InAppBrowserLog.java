@@ -0,0 +1,112 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * The logging of the InAppBrowser, shared by the Android and Amazon Fire OS plugins. It
+ * has the same methods as Cordova's LOG, with its own level.
+ *
+ * Messages below the level set by the InAppBrowserLogLevel preference are dropped before
+ * they are formatted, so pass the parts of a message as format arguments rather than
+ * concatenating them. Code that has to do more work to build a message can check
+ * {@link #isLoggable} first.
+ */
+public final class InAppBrowserLog {
+
+    private static final String LOG_TAG = "InAppBrowser";
+
+    private static volatile int level = Log.WARN;
+
+    private InAppBrowserLog() {
+    }
+
+    /**
+     * Set the lowest level that is logged.
+     *
+     * @param name VERBOSE, DEBUG, INFO, WARN, ERROR or NONE, in any case
+     */
+    public static void setLevel(String name) {
+        name = name.trim().toUpperCase(Locale.US);
+        if ("VERBOSE".equals(name)) {
+            level = Log.VERBOSE;
+        } else if ("DEBUG".equals(name)) {
+            level = Log.DEBUG;
+        } else if ("INFO".equals(name)) {
+            level = Log.INFO;
+        } else if ("WARN".equals(name)) {
+            level = Log.WARN;
+        } else if ("ERROR".equals(name)) {
+            level = Log.ERROR;
+        } else if ("NONE".equals(name)) {
+            level = Integer.MAX_VALUE;
+        } else {
+            Log.w(LOG_TAG, "Unknown log level " + name);
+        }
+    }
+
+    public static boolean isLoggable(int logLevel) {
+        return logLevel >= level;
+    }
+
+    public static void d(String tag, String message) {
+        if (Log.DEBUG >= level) {
+            Log.d(tag, message);
+        }
+    }
+
+    public static void d(String tag, String format, Object... args) {
+        if (Log.DEBUG >= level) {
+            Log.d(tag, String.format(format, args));
+        }
+    }
+
+    public static void w(String tag, String message) {
+        if (Log.WARN >= level) {
+            Log.w(tag, message);
+        }
+    }
+
+    public static void w(String tag, String format, Object... args) {
+        if (Log.WARN >= level) {
+            Log.w(tag, String.format(format, args));
+        }
+    }
+
+    public static void e(String tag, String message) {
+        if (Log.ERROR >= level) {
+            Log.e(tag, message);
+        }
+    }
+
+    public static void e(String tag, String format, Object... args) {
+        if (Log.ERROR >= level) {
+            Log.e(tag, String.format(format, args));
+        }
+    }
+
+    public static void e(String tag, String message, Throwable e) {
+        if (Log.ERROR >= level) {
+            Log.e(tag, message, e);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+
+/**
+ * Timing of the phases between the open call and the first page load of a window, and
+ * histograms of them across windows.
+ *
+ * Every phase is measured with System.nanoTime() from the moment execute() received the
+ * open call. The bridge phase is the exception: it is the wall clock time between the
+ * JavaScript call and execute(), in whole milliseconds.
+ *
+ * Recording only writes to preallocated arrays, so it stays enabled.
+ */
+public class InAppBrowserMetrics {
+
+    public static final int EXECUTE = 0;
+    public static final int UI_THREAD = 1;
+    public static final int DIALOG_CREATED = 2;
+    public static final int LOAD_URL = 3;
+    public static final int SHOWN = 4;
+    public static final int PAGE_STARTED = 5;
+    public static final int PAGE_FINISHED = 6;
+    public static final int PHASE_COUNT = 7;
+
+    private static final String[] PHASE_NAMES = {
+        "execute", "uiThread", "dialogCreated", "loadUrl", "shown", "pageStarted", "pageFinished"
+    };
+    private static final String BRIDGE = "bridge";
+
+    // Four buckets per power of two of microseconds, up to about 18 hours
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKET_COUNT = 36 * SUB_BUCKETS;
+
+    /**
+     * The phase timestamps of one window.
+     */
+    public static class Timeline {
+        private final long[] times = new long[PHASE_COUNT];
+        private volatile long bridgeMillis = -1;
+
+        /**
+         * Record the time a phase was reached, unless it already was.
+         *
+         * @param phase the phase
+         * @return true if this is the first time the phase was reached
+         */
+        public boolean mark(int phase) {
+            return mark(phase, System.nanoTime());
+        }
+
+        /**
+         * Record the time a phase was reached, unless it already was.
+         *
+         * @param phase the phase
+         * @param nanoTime the value of System.nanoTime() when the phase was reached
+         * @return true if this is the first time the phase was reached
+         */
+        public boolean mark(int phase, long nanoTime) {
+            if (times[phase] != 0) {
+                return false;
+            }
+            times[phase] = nanoTime;
+            return true;
+        }
+
+        /**
+         * Record the wall clock time of the JavaScript open call.
+         *
+         * @param jsTime the value of Date.now() when open was called, or 0 if unknown
+         */
+        public void setOpenTime(long jsTime) {
+            if (jsTime > 0) {
+                bridgeMillis = Math.max(0, System.currentTimeMillis() - jsTime);
+            }
+        }
+
+        /**
+         * The phases reached so far, in milliseconds since execute().
+         */
+        public JSONObject toJSON() throws JSONException {
+            JSONObject obj = new JSONObject();
+            if (bridgeMillis >= 0) {
+                obj.put(BRIDGE, bridgeMillis);
+            }
+            long start = times[EXECUTE];
+            for (int phase = EXECUTE + 1; phase < PHASE_COUNT; phase++) {
+                if (times[phase] != 0 && start != 0) {
+                    obj.put(PHASE_NAMES[phase], (times[phase] - start) / 1e6);
+                }
+            }
+            return obj;
+        }
+    }
+
+    // Per phase, the bridge last
+    private final long[][] counts = new long[PHASE_COUNT + 1][BUCKET_COUNT];
+    private final long[] totals = new long[PHASE_COUNT + 1];
+
+    /**
+     * Add the phases a window reached to the histograms.
+     *
+     * @param timeline the window's timeline
+     */
+    public synchronized void record(Timeline timeline) {
+        long start = timeline.times[EXECUTE];
+        if (start == 0) {
+            return;
+        }
+        for (int phase = EXECUTE + 1; phase < PHASE_COUNT; phase++) {
+            if (timeline.times[phase] != 0) {
+                add(phase, (timeline.times[phase] - start) / 1000);
+            }
+        }
+        if (timeline.bridgeMillis >= 0) {
+            add(PHASE_COUNT, timeline.bridgeMillis * 1000);
+        }
+    }
+
+    /**
+     * The count and the 50th, 95th and 99th percentiles, in milliseconds, of each phase.
+     */
+    public synchronized JSONObject toJSON() throws JSONException {
+        JSONObject obj = new JSONObject();
+        for (int phase = EXECUTE + 1; phase <= PHASE_COUNT; phase++) {
+            if (totals[phase] == 0) {
+                continue;
+            }
+            JSONObject stats = new JSONObject();
+            stats.put("count", totals[phase]);
+            stats.put("p50", percentile(phase, 0.50));
+            stats.put("p95", percentile(phase, 0.95));
+            stats.put("p99", percentile(phase, 0.99));
+            obj.put(phase == PHASE_COUNT ? BRIDGE : PHASE_NAMES[phase], stats);
+        }
+        return obj;
+    }
+
+    public synchronized void reset() {
+        for (int phase = 0; phase <= PHASE_COUNT; phase++) {
+            Arrays.fill(counts[phase], 0);
+            totals[phase] = 0;
+        }
+    }
+
+    private void add(int phase, long micros) {
+        counts[phase][bucket(micros)]++;
+        totals[phase]++;
+    }
+
+    private double percentile(int phase, double fraction) {
+        long rank = (long) Math.ceil(totals[phase] * fraction);
+        long seen = 0;
+        long[] buckets = counts[phase];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return upperBound(i) / 1000.0;
+            }
+        }
+        return upperBound(BUCKET_COUNT - 1) / 1000.0;
+    }
+
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(0, micros);
+        }
+        int octave = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >> (octave - 2)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKET_COUNT - 1, (octave - 1) * SUB_BUCKETS + sub);
+    }
+
+    /**
+     * The largest value, in microseconds, that falls into a bucket.
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int octave = bucket / SUB_BUCKETS + 1;
+        int sub = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (octave - 2)) - 1;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The options of a window, parsed from the feature string passed to open, such as
+ * "location=no,hidden=yes,toolbarcolor=#336699".
+ *
+ * Keys are case insensitive and surrounding spaces are ignored. A key without a value,
+ * such as "hidden", is the same as "hidden=yes". Instances are immutable, and the last
+ * few feature strings parsed are cached since apps tend to pass the same ones every time.
+ * Nothing here depends on Android, so it can be used on the bridge thread.
+ */
+public final class InAppBrowserOptions {
+
+    public static final InAppBrowserOptions EMPTY = new InAppBrowserOptions(new HashMap<String, String>());
+
+    private static final String NULL = "null";
+    private static final String NO = "no";
+    private static final int CACHE_SIZE = 16;
+
+    private static final Map<String, InAppBrowserOptions> cache = new LinkedHashMap<String, InAppBrowserOptions>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, InAppBrowserOptions> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final Map<String, String> values;
+
+    private InAppBrowserOptions(HashMap<String, String> values) {
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Parse a feature string.
+     *
+     * @param features options separated by commas, each a key with an optional
+     *                 "=value", or null or "null" for none
+     * @return the options
+     */
+    public static InAppBrowserOptions parse(String features) {
+        if (features == null || features.length() == 0 || features.equals(NULL)) {
+            return EMPTY;
+        }
+        synchronized (cache) {
+            InAppBrowserOptions options = cache.get(features);
+            if (options != null) {
+                return options;
+            }
+        }
+
+        HashMap<String, String> values = new HashMap<String, String>();
+        int length = features.length();
+        int start = 0;
+        while (start < length) {
+            int end = features.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+            int equals = features.indexOf('=', start);
+            String key;
+            String value;
+            if (equals < 0 || equals > end) {
+                key = features.substring(start, end);
+                value = "";
+            } else {
+                key = features.substring(start, equals);
+                value = features.substring(equals + 1, end).trim();
+            }
+            key = key.trim().toLowerCase(Locale.US);
+            if (key.length() > 0) {
+                values.put(key, value);
+            }
+            start = end + 1;
+        }
+
+        InAppBrowserOptions options = new InAppBrowserOptions(values);
+        synchronized (cache) {
+            cache.put(features, options);
+        }
+        return options;
+    }
+
+    public boolean has(String key) {
+        return values.containsKey(key);
+    }
+
+    /**
+     * A yes/no option. Any value other than "no" is yes.
+     */
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return !value.equalsIgnoreCase(NO);
+    }
+
+    public String getString(String key, String defaultValue) {
+        String value = values.get(key);
+        return value == null || value.length() == 0 ? defaultValue : value;
+    }
+
+    /**
+     * A decimal integer option, such as a size or a timeout.
+     *
+     * @return the value, or defaultValue if the option is missing or not a number
+     */
+    public int getInt(String key, int defaultValue) {
+        String value = values.get(key);
+        if (value == null || value.length() == 0) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * A color option, "#rrggbb" or "#aarrggbb".
+     *
+     * @return the color as an ARGB int, or defaultValue if the option is missing or
+     *         malformed
+     */
+    public int getColor(String key, int defaultValue) {
+        String value = values.get(key);
+        if (value == null || (value.length() != 7 && value.length() != 9) || value.charAt(0) != '#'
+                || Character.digit(value.charAt(1), 16) < 0) {
+            return defaultValue;
+        }
+        long color;
+        try {
+            color = Long.parseLong(value.substring(1), 16);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+        return value.length() == 7 ? (int) (color | 0xff000000L) : (int) color;
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+}
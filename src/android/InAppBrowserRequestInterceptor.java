@@ -0,0 +1,40 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import android.webkit.WebResourceResponse;
+
+import java.util.Map;
+
+/**
+ * Answers requests made by an InAppBrowser window without going to the network.
+ *
+ * Interceptors are called on the WebView's network thread, in the order they were
+ * added, until one of them returns a response. They must be thread safe.
+ */
+public interface InAppBrowserRequestInterceptor {
+
+    /**
+     * @param method  the HTTP method, "GET" before Android 5.0 where it is not known
+     * @param url     the requested url
+     * @param headers the request headers, empty before Android 5.0 where they are not known
+     * @return the response to use, or null to let the next interceptor or the WebView handle the request
+     */
+    WebResourceResponse intercept(String method, String url, Map<String, String> headers);
+}
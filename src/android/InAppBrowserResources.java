@@ -0,0 +1,119 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import android.app.Activity;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.util.TypedValue;
+
+/**
+ * Resolves the toolbar icons and dimensions once per configuration instead of on every
+ * open. Icons are kept as constant states, so each toolbar gets its own drawables while
+ * sharing the decoded bitmaps.
+ *
+ * Call {@link #invalidate()} when the configuration changes. A change in screen density
+ * is also detected on access.
+ */
+public class InAppBrowserResources {
+
+    private final Activity activity;
+    private int densityDpi = 0;
+    private int toolbarHeight;
+    private int toolbarPadding;
+    private Drawable.ConstantState backIcon;
+    private Drawable.ConstantState forwardIcon;
+    private Drawable.ConstantState closeIcon;
+
+    public InAppBrowserResources(Activity activity) {
+        this.activity = activity;
+    }
+
+    /**
+     * Forget everything that has been resolved so far.
+     */
+    public synchronized void invalidate() {
+        densityDpi = 0;
+        backIcon = null;
+        forwardIcon = null;
+        closeIcon = null;
+    }
+
+    /**
+     * Whether the values handed out since the last call to {@link #invalidate()} are
+     * still valid for the current configuration.
+     */
+    public synchronized boolean isValid() {
+        return densityDpi != 0 && densityDpi == activity.getResources().getDisplayMetrics().densityDpi;
+    }
+
+    public synchronized int getToolbarHeight() {
+        load();
+        return toolbarHeight;
+    }
+
+    public synchronized int getToolbarPadding() {
+        load();
+        return toolbarPadding;
+    }
+
+    public synchronized Drawable newBackIcon() {
+        load();
+        return backIcon.newDrawable(activity.getResources());
+    }
+
+    public synchronized Drawable newForwardIcon() {
+        load();
+        return forwardIcon.newDrawable(activity.getResources());
+    }
+
+    public synchronized Drawable newCloseIcon() {
+        load();
+        return closeIcon.newDrawable(activity.getResources());
+    }
+
+    private void load() {
+        if (isValid()) {
+            return;
+        }
+        Resources activityRes = activity.getResources();
+        densityDpi = activityRes.getDisplayMetrics().densityDpi;
+        toolbarHeight = dpToPixels(activityRes, 44);
+        toolbarPadding = dpToPixels(activityRes, 2);
+        backIcon = loadIcon(activityRes, "ic_action_previous_item");
+        forwardIcon = loadIcon(activityRes, "ic_action_next_item");
+        closeIcon = loadIcon(activityRes, "ic_action_remove");
+    }
+
+    private Drawable.ConstantState loadIcon(Resources activityRes, String name) {
+        int resId = activityRes.getIdentifier(name, "drawable", activity.getPackageName());
+        return activityRes.getDrawable(resId).getConstantState();
+    }
+
+    /**
+     * Convert our DIP units to Pixels
+     *
+     * @return int
+     */
+    private static int dpToPixels(Resources activityRes, int dipValue) {
+        return (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
+                                               (float) dipValue,
+                                               activityRes.getDisplayMetrics());
+    }
+}
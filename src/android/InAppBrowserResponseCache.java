@@ -0,0 +1,869 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import android.net.Uri;
+import android.os.Build;
+import android.webkit.CookieManager;
+import android.webkit.WebResourceResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size bounded LRU cache of static assets (scripts, style sheets, fonts and images)
+ * kept in the app's cache directory.
+ *
+ * Entries are keyed by url plus the values of the request headers named in the
+ * response's Vary header. On a miss the asset is fetched here and streamed to the
+ * WebView while it is written to disk. Every response fetched here is handed to the
+ * WebView with its status, stored or not, so nothing is requested twice. Redirects are
+ * the exception, and are left to the WebView.
+ *
+ * Entries follow the Cache-Control and Expires headers of their response. A stale entry
+ * is revalidated with If-None-Match or If-Modified-Since before it is served again.
+ * Nothing is stored when the response is no-store or private or varies on everything,
+ * when it is larger than the whole cache, or when the request carried cookies or an
+ * Authorization header and the response is not marked public.
+ *
+ * Cookies are only sent and kept for requests to the origin of the page. Whether the
+ * WebView would send cookies to other origins depends on its third-party cookie
+ * setting, their SameSite attribute and the element's crossorigin attribute, none of
+ * which can be seen here, so such requests are left to the WebView when there are
+ * cookies for them, and are made without cookies otherwise. Cookies set by their
+ * responses are dropped.
+ *
+ * Every entry is a body file and a small properties file with its url, type, expiry and
+ * the headers worth replaying, so the cache survives restarts. The index is read on
+ * first use.
+ */
+public class InAppBrowserResponseCache implements InAppBrowserRequestInterceptor {
+
+    private static final String LOG_TAG = "InAppBrowserResponseCache";
+    private static final String BODY_SUFFIX = ".body";
+    private static final String META_SUFFIX = ".meta";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int CONNECT_TIMEOUT = 15000;
+    private static final int READ_TIMEOUT = 30000;
+    // The longest an entry without an explicit lifetime stays fresh, in ms
+    private static final long MAX_HEURISTIC_LIFETIME = 24 * 60 * 60 * 1000L;
+
+    private static final List<String> STATIC_EXTENSIONS = Arrays.asList(
+            "js", "css", "woff", "woff2", "ttf", "otf", "eot",
+            "png", "jpg", "jpeg", "gif", "webp", "svg", "ico");
+
+    // Response headers stored with an entry and replayed on a hit
+    private static final String[] STORED_HEADERS = {
+            "Access-Control-Allow-Origin", "Timing-Allow-Origin", "Cache-Control", "ETag", "Last-Modified"
+    };
+
+    // Request headers that are not forwarded, since bodies are decoded and validated here
+    private static final List<String> SKIPPED_REQUEST_HEADERS = Arrays.asList(
+            "accept-encoding", "if-none-match", "if-modified-since", "if-match", "if-unmodified-since", "if-range");
+
+    // Response headers that do not apply to the decoded body handed to the WebView
+    private static final List<String> SKIPPED_RESPONSE_HEADERS = Arrays.asList(
+            "set-cookie", "set-cookie2", "content-length", "content-encoding", "transfer-encoding",
+            "connection", "keep-alive");
+
+    private static final class Entry {
+        final String key;
+        final File body;
+        final File meta;
+        final long size;
+        final String url;
+        final String vary;
+        final String mimeType;
+        final String encoding;
+        final Map<String, String> headers;
+        // When the entry goes stale, in ms since the epoch
+        final long expires;
+
+        Entry(String key, File body, File meta, long size, String url, String vary, String mimeType, String encoding,
+              Map<String, String> headers, long expires) {
+            this.key = key;
+            this.body = body;
+            this.meta = meta;
+            this.size = size;
+            this.url = url;
+            this.vary = vary;
+            this.mimeType = mimeType;
+            this.encoding = encoding;
+            this.headers = headers;
+            this.expires = expires;
+        }
+    }
+
+    private final File directory;
+    private final long maxSize;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(64, 0.75f, true);
+    // The lower case names of the Vary headers last seen for each url
+    private final HashMap<String, String[]> varyByUrl = new HashMap<String, String[]>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long size = 0;
+    private boolean loaded = false;
+
+    public InAppBrowserResponseCache(File directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Answer a request without knowing the page making it, which means leaving every
+     * request with cookies to the WebView.
+     */
+    @Override
+    public WebResourceResponse intercept(String method, String url, Map<String, String> headers) {
+        return intercept(method, url, headers, null);
+    }
+
+    /**
+     * Answer a request from the cache, or fetch it.
+     *
+     * @param pageUrl the url of the page making the request, or of the request itself for
+     *                a page; null if not known
+     * @return the response, or null to let the WebView make the request itself
+     */
+    public WebResourceResponse intercept(String method, String url, Map<String, String> headers, String pageUrl) {
+        if (!"GET".equalsIgnoreCase(method) || !isStaticAsset(url) || getHeader(headers, "Range") != null) {
+            return null;
+        }
+        Entry entry;
+        synchronized (this) {
+            load();
+            entry = entries.get(keyFor(url, headers));
+        }
+        // A reload asks for revalidation with Cache-Control: no-cache
+        boolean fresh = entry != null && System.currentTimeMillis() < entry.expires
+                && !hasDirective(getHeader(headers, "Cache-Control"), "no-cache");
+        if (fresh) {
+            try {
+                InputStream in = new FileInputStream(entry.body);
+                hits.incrementAndGet();
+                return toResponse(HttpURLConnection.HTTP_OK, "OK", entry.mimeType, entry.encoding, entry.headers, in);
+            } catch (FileNotFoundException e) {
+                synchronized (this) {
+                    remove(entry);
+                }
+                entry = null;
+            }
+        }
+        return fetch(url, headers, entry, pageUrl != null && isSameOrigin(url, pageUrl));
+    }
+
+    /**
+     * Delete every entry.
+     */
+    public synchronized void clear() {
+        load();
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            entry.body.delete();
+            entry.meta.delete();
+            it.remove();
+        }
+        varyByUrl.clear();
+        size = 0;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized int getEntryCount() {
+        load();
+        return entries.size();
+    }
+
+    public synchronized long getSize() {
+        load();
+        return size;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Fetch an asset, or revalidate a stale entry, storing the response when it allows
+     * it.
+     *
+     * @param stale the stale entry for the request, or null
+     * @param firstParty whether the request is to the origin of the page
+     * @return the response, or null to let the WebView make the request itself
+     */
+    private WebResourceResponse fetch(String url, Map<String, String> headers, Entry stale, boolean firstParty) {
+        CookieManager cookieManager = CookieManager.getInstance();
+        String cookie = cookieManager.acceptCookie() ? cookieManager.getCookie(url) : null;
+        boolean hasCookie = cookie != null && cookie.length() > 0;
+        if (hasCookie && !firstParty) {
+            return null;
+        }
+        boolean keepCookies = firstParty && cookieManager.acceptCookie();
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT);
+            connection.setReadTimeout(READ_TIMEOUT);
+            boolean credentialed = false;
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                String name = header.getKey();
+                if (name != null && header.getValue() != null && !SKIPPED_REQUEST_HEADERS.contains(name.toLowerCase(Locale.US))) {
+                    connection.setRequestProperty(name, header.getValue());
+                    credentialed |= "Authorization".equalsIgnoreCase(name);
+                }
+            }
+            if (hasCookie) {
+                connection.setRequestProperty("Cookie", cookie);
+                credentialed = true;
+            }
+            if (stale != null) {
+                String etag = stale.headers.get("ETag");
+                String lastModified = stale.headers.get("Last-Modified");
+                if (etag != null) {
+                    connection.setRequestProperty("If-None-Match", etag);
+                }
+                if (lastModified != null) {
+                    connection.setRequestProperty("If-Modified-Since", lastModified);
+                }
+            }
+
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && stale != null) {
+                if (keepCookies) {
+                    setCookies(cookieManager, url, connection);
+                }
+                Entry entry = refresh(stale, connection);
+                connection.disconnect();
+                hits.incrementAndGet();
+                return toResponse(HttpURLConnection.HTTP_OK, "OK", entry.mimeType, entry.encoding, entry.headers,
+                        new FileInputStream(entry.body));
+            }
+            misses.incrementAndGet();
+            if (stale != null) {
+                synchronized (this) {
+                    remove(stale);
+                }
+            }
+            // A WebResourceResponse cannot be a redirect, nor have a status before Android
+            // 5.0. Leave those to the WebView, before applying any cookie they set.
+            if ((status >= 300 && status < 400)
+                    || (status != HttpURLConnection.HTTP_OK && Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP)) {
+                connection.disconnect();
+                return null;
+            }
+            if (keepCookies) {
+                setCookies(cookieManager, url, connection);
+            }
+
+            String contentType = connection.getContentType();
+            String mimeType = parseMimeType(contentType);
+            String encoding = parseCharset(contentType);
+            String reason = connection.getResponseMessage();
+            if (reason == null || reason.length() == 0) {
+                reason = status < 400 ? "OK" : "Error";
+            }
+            InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (body == null) {
+                body = new ByteArrayInputStream(new byte[0]);
+            }
+            Map<String, String> responseHeaders = getResponseHeaders(connection);
+
+            String cacheControl = connection.getHeaderField("Cache-Control");
+            String vary = connection.getHeaderField("Vary");
+            long lifetime = getLifetime(connection, cacheControl);
+            boolean storable = status == HttpURLConnection.HTTP_OK
+                    && !hasDirective(cacheControl, "no-store") && !hasDirective(cacheControl, "private")
+                    && (!credentialed || hasDirective(cacheControl, "public"))
+                    && (vary == null || !vary.trim().equals("*"))
+                    && connection.getContentLength() <= maxSize
+                    // Worth keeping only if it is fresh for a while or can be revalidated
+                    && (lifetime > 0 || connection.getHeaderField("ETag") != null
+                        || connection.getHeaderField("Last-Modified") != null);
+            if (!storable || (!directory.isDirectory() && !directory.mkdirs())) {
+                return toResponse(status, reason, mimeType, encoding, responseHeaders, new ConnectionInputStream(body, connection));
+            }
+
+            Map<String, String> stored = new HashMap<String, String>();
+            for (String name : STORED_HEADERS) {
+                String value = connection.getHeaderField(name);
+                if (value != null) {
+                    stored.put(name, value);
+                }
+            }
+            String key;
+            synchronized (this) {
+                varyByUrl.put(url, parseVary(vary));
+                key = keyFor(url, headers);
+            }
+            File temp = new File(directory, key + "." + Thread.currentThread().getId() + TEMP_SUFFIX);
+            Entry pending = new Entry(key, temp, null, 0, url, vary, mimeType, encoding, stored,
+                    System.currentTimeMillis() + lifetime);
+            return toResponse(status, reason, mimeType, encoding, responseHeaders,
+                    new StoringInputStream(body, connection, pending, new FileOutputStream(temp)));
+        } catch (IOException e) {
+            InAppBrowserLog.d(LOG_TAG, "Could not fetch %s: %s", url, e.getMessage());
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The body of a response that is not stored. Closing it closes the connection.
+     */
+    private static class ConnectionInputStream extends FilterInputStream {
+        private final HttpURLConnection connection;
+
+        ConnectionInputStream(InputStream in, HttpURLConnection connection) {
+            super(in);
+            this.connection = connection;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * The body of a response that is stored. It is copied to a temporary file as the
+     * WebView reads it, and becomes an entry once read to the end. The copy is dropped if
+     * it grows larger than the cache or the body is not read to the end.
+     */
+    private class StoringInputStream extends ConnectionInputStream {
+        private final Entry pending;
+        // Null once the copy is stored or dropped
+        private OutputStream out;
+        private long length = 0;
+
+        StoringInputStream(InputStream in, HttpURLConnection connection, Entry pending, OutputStream out) {
+            super(in, connection);
+            this.pending = pending;
+            this.out = out;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int read = read(one, 0, 1);
+            return read < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            int read;
+            try {
+                read = super.read(buffer, offset, count);
+            } catch (IOException e) {
+                drop();
+                throw e;
+            }
+            if (read < 0) {
+                commit();
+            } else if (out != null && read > 0) {
+                length += read;
+                if (length > maxSize) {
+                    drop();
+                } else {
+                    try {
+                        out.write(buffer, offset, read);
+                    } catch (IOException e) {
+                        drop();
+                    }
+                }
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            // The copy would have a hole
+            drop();
+            return super.skip(count);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            drop();
+            super.close();
+        }
+
+        private void commit() {
+            if (out == null) {
+                return;
+            }
+            OutputStream written = out;
+            out = null;
+            try {
+                written.close();
+                store(pending, length);
+            } catch (IOException e) {
+                InAppBrowserLog.d(LOG_TAG, "Could not store %s: %s", pending.url, e.getMessage());
+                pending.body.delete();
+            }
+        }
+
+        private void drop() {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.close();
+            } catch (IOException e) {
+                // The copy is deleted either way
+            }
+            out = null;
+            pending.body.delete();
+        }
+    }
+
+    /**
+     * Move a completely written body into place and add its entry to the index.
+     *
+     * @param pending the entry, with the temporary file as its body
+     * @param length  the size of the body
+     */
+    private synchronized void store(Entry pending, long length) throws IOException {
+        File body = new File(directory, pending.key + BODY_SUFFIX);
+        File meta = new File(directory, pending.key + META_SUFFIX);
+        Entry old = entries.get(pending.key);
+        if (old != null) {
+            remove(old);
+        }
+        if (!pending.body.renameTo(body)) {
+            pending.body.delete();
+            return;
+        }
+        Entry entry = new Entry(pending.key, body, meta, length, pending.url, pending.vary, pending.mimeType,
+                pending.encoding, pending.headers, pending.expires);
+        writeMeta(entry);
+        entries.put(entry.key, entry);
+        size += length;
+        trim();
+    }
+
+    /**
+     * Update a stale entry from the 304 response that revalidated it.
+     *
+     * @return the updated entry
+     */
+    private Entry refresh(Entry stale, HttpURLConnection connection) {
+        Map<String, String> headers = new HashMap<String, String>(stale.headers);
+        for (String name : STORED_HEADERS) {
+            String value = connection.getHeaderField(name);
+            if (value != null) {
+                headers.put(name, value);
+            }
+        }
+        long expires = System.currentTimeMillis() + getLifetime(connection, headers.get("Cache-Control"));
+        Entry entry = new Entry(stale.key, stale.body, stale.meta, stale.size, stale.url, stale.vary, stale.mimeType,
+                stale.encoding, headers, expires);
+        synchronized (this) {
+            if (entries.get(stale.key) == stale) {
+                entries.put(stale.key, entry);
+                try {
+                    writeMeta(entry);
+                } catch (IOException e) {
+                    InAppBrowserLog.d(LOG_TAG, "Could not update %s: %s", entry.url, e.getMessage());
+                }
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Must hold the lock.
+     */
+    private void writeMeta(Entry entry) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("url", entry.url);
+        properties.setProperty("mimeType", entry.mimeType);
+        properties.setProperty("expires", Long.toString(entry.expires));
+        if (entry.vary != null) {
+            properties.setProperty("vary", entry.vary);
+        }
+        if (entry.encoding != null) {
+            properties.setProperty("encoding", entry.encoding);
+        }
+        for (Map.Entry<String, String> header : entry.headers.entrySet()) {
+            properties.setProperty("header." + header.getKey(), header.getValue());
+        }
+        OutputStream out = new FileOutputStream(entry.meta);
+        try {
+            properties.store(out, null);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Read the entries stored by earlier runs, oldest first. Must hold the lock.
+     */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            public int compare(File a, File b) {
+                long diff = a.lastModified() - b.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(TEMP_SUFFIX)) {
+                file.delete();
+            }
+            if (!name.endsWith(META_SUFFIX)) {
+                continue;
+            }
+            String key = name.substring(0, name.length() - META_SUFFIX.length());
+            File body = new File(directory, key + BODY_SUFFIX);
+            Properties properties = new Properties();
+            try {
+                InputStream in = new FileInputStream(file);
+                try {
+                    properties.load(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                file.delete();
+                body.delete();
+                continue;
+            }
+            String url = properties.getProperty("url");
+            if (url == null || !body.isFile()) {
+                file.delete();
+                body.delete();
+                continue;
+            }
+            Map<String, String> headers = new HashMap<String, String>();
+            for (String property : properties.stringPropertyNames()) {
+                if (property.startsWith("header.")) {
+                    headers.put(property.substring("header.".length()), properties.getProperty(property));
+                }
+            }
+            long expires;
+            try {
+                // Entries written before expiry was tracked are revalidated on first use
+                expires = Long.parseLong(properties.getProperty("expires", "0"));
+            } catch (NumberFormatException e) {
+                expires = 0;
+            }
+            String vary = properties.getProperty("vary");
+            varyByUrl.put(url, parseVary(vary));
+            entries.put(key, new Entry(key, body, file, body.length(), url, vary,
+                    properties.getProperty("mimeType"), properties.getProperty("encoding"), headers, expires));
+            size += body.length();
+        }
+        trim();
+    }
+
+    /**
+     * Drop the least recently used entries until the cache fits. Must hold the lock.
+     */
+    private void trim() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (size > maxSize && it.hasNext()) {
+            Entry entry = it.next();
+            it.remove();
+            entry.body.delete();
+            entry.meta.delete();
+            size -= entry.size;
+        }
+    }
+
+    /**
+     * Remove an entry, unless it has already been replaced. Must hold the lock.
+     */
+    private void remove(Entry entry) {
+        if (entries.get(entry.key) == entry) {
+            entries.remove(entry.key);
+            entry.body.delete();
+            entry.meta.delete();
+            size -= entry.size;
+        }
+    }
+
+    /**
+     * Must hold the lock.
+     */
+    private String keyFor(String url, Map<String, String> headers) {
+        StringBuilder key = new StringBuilder(url);
+        String[] vary = varyByUrl.get(url);
+        if (vary != null) {
+            for (String name : vary) {
+                String value = getHeader(headers, name);
+                key.append('\n').append(name).append(':').append(value == null ? "" : value);
+            }
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.toString().getBytes("UTF-8"));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void setCookies(CookieManager cookieManager, String url, HttpURLConnection connection) {
+        List<String> setCookies = connection.getHeaderFields().get("Set-Cookie");
+        if (setCookies != null) {
+            for (String setCookie : setCookies) {
+                cookieManager.setCookie(url, setCookie);
+            }
+        }
+    }
+
+    /**
+     * How long a response stays fresh, in ms, less its Age: its max-age, or else the time
+     * from its Date to its Expires, or else a tenth of the time since it was last
+     * modified, up to a day. Zero for no-cache responses and responses with none of these
+     * headers.
+     */
+    private static long getLifetime(HttpURLConnection connection, String cacheControl) {
+        if (hasDirective(cacheControl, "no-cache")) {
+            return 0;
+        }
+        long date = connection.getHeaderFieldDate("Date", System.currentTimeMillis());
+        long lifetime;
+        long maxAge = getMaxAge(cacheControl);
+        if (maxAge >= 0) {
+            lifetime = maxAge * 1000;
+        } else if (connection.getHeaderField("Expires") != null) {
+            // An invalid date, such as "0", means already expired
+            lifetime = connection.getHeaderFieldDate("Expires", 0) - date;
+        } else if (connection.getHeaderField("Last-Modified") != null) {
+            lifetime = Math.min(MAX_HEURISTIC_LIFETIME, (date - connection.getHeaderFieldDate("Last-Modified", date)) / 10);
+        } else {
+            lifetime = 0;
+        }
+        long age = Math.max(0, connection.getHeaderFieldInt("Age", 0)) * 1000L;
+        return Math.max(0, lifetime - age);
+    }
+
+    /**
+     * Whether a Cache-Control header has a directive, whatever its value.
+     */
+    private static boolean hasDirective(String cacheControl, String directive) {
+        if (cacheControl == null) {
+            return false;
+        }
+        for (String part : cacheControl.split(",")) {
+            int equals = part.indexOf('=');
+            String name = (equals < 0 ? part : part.substring(0, equals)).trim();
+            if (name.equalsIgnoreCase(directive)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The max-age of a Cache-Control header in seconds, or -1 if it has none.
+     */
+    private static long getMaxAge(String cacheControl) {
+        if (cacheControl == null) {
+            return -1;
+        }
+        for (String part : cacheControl.split(",")) {
+            int equals = part.indexOf('=');
+            if (equals >= 0 && part.substring(0, equals).trim().equalsIgnoreCase("max-age")) {
+                try {
+                    return Math.max(0, Long.parseLong(part.substring(equals + 1).trim().replace("\"", "")));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The headers of a response that apply to the body handed to the WebView, with
+     * repeated headers joined by commas.
+     */
+    private static Map<String, String> getResponseHeaders(HttpURLConnection connection) {
+        Map<String, String> headers = new HashMap<String, String>();
+        for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+            String name = header.getKey();
+            // The status line has no name, and Android adds X-Android-* headers of its own
+            if (name == null || SKIPPED_RESPONSE_HEADERS.contains(name.toLowerCase(Locale.US))
+                    || name.toLowerCase(Locale.US).startsWith("x-android-")) {
+                continue;
+            }
+            StringBuilder value = new StringBuilder();
+            for (String part : header.getValue()) {
+                if (value.length() > 0) {
+                    value.append(", ");
+                }
+                value.append(part);
+            }
+            headers.put(name, value.toString());
+        }
+        return headers;
+    }
+
+    /**
+     * Whether two urls have the same scheme, host and port.
+     */
+    private static boolean isSameOrigin(String url, String other) {
+        Uri a = Uri.parse(url);
+        Uri b = Uri.parse(other);
+        String scheme = a.getScheme();
+        String host = a.getHost();
+        return scheme != null && scheme.equalsIgnoreCase(b.getScheme())
+                && host != null && host.equalsIgnoreCase(b.getHost())
+                && getPort(a) == getPort(b);
+    }
+
+    private static int getPort(Uri uri) {
+        int port = uri.getPort();
+        if (port < 0) {
+            return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        }
+        return port;
+    }
+
+    private static boolean isStaticAsset(String url) {
+        Uri uri = Uri.parse(url);
+        String scheme = uri.getScheme();
+        String path = uri.getPath();
+        if (path == null || !("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme))) {
+            return false;
+        }
+        int dot = path.lastIndexOf('.');
+        if (dot < 0 || dot < path.lastIndexOf('/')) {
+            return false;
+        }
+        return STATIC_EXTENSIONS.contains(path.substring(dot + 1).toLowerCase(Locale.US));
+    }
+
+    private static String getHeader(Map<String, String> headers, String name) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The header names a response varies on, except Accept-Encoding which is never
+     * forwarded.
+     */
+    private static String[] parseVary(String vary) {
+        if (vary == null) {
+            return new String[0];
+        }
+        String[] names = vary.split(",");
+        int count = 0;
+        for (String name : names) {
+            name = name.trim().toLowerCase(Locale.US);
+            if (name.length() > 0 && !name.equals("accept-encoding")) {
+                names[count++] = name;
+            }
+        }
+        String[] result = Arrays.copyOf(names, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static String parseMimeType(String contentType) {
+        if (contentType == null) {
+            return "application/octet-stream";
+        }
+        int semicolon = contentType.indexOf(';');
+        return (semicolon < 0 ? contentType : contentType.substring(0, semicolon)).trim();
+    }
+
+    private static String parseCharset(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        for (String parameter : contentType.split(";")) {
+            parameter = parameter.trim();
+            if (parameter.toLowerCase(Locale.US).startsWith("charset=")) {
+                return parameter.substring("charset=".length()).replace("\"", "");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Build a response. Its status and headers are only kept on Android 5.0 and newer,
+     * where every response fetched here is passed on; older versions only get 200s.
+     */
+    private static WebResourceResponse toResponse(int status, String reason, String mimeType, String encoding,
+                                                  Map<String, String> headers, InputStream in) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return new WebResourceResponse(mimeType, encoding, status, reason, headers, in);
+        }
+        return new WebResourceResponse(mimeType, encoding, in);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import android.content.Intent;
+
+/**
+ * Opens the urls of one scheme outside of the InAppBrowser, such as tel: in the dialer.
+ * Handlers are registered with {@link InAppBrowserSchemeHandlers#register}.
+ */
+public interface InAppBrowserSchemeHandler {
+
+    /**
+     * Build the intent which opens a url. Called on the UI thread while a navigation is
+     * being decided, so it must return quickly and must not block.
+     *
+     * @param url the url, which has the scheme the handler was registered for
+     * @return the intent to start, or null to drop the url
+     */
+    Intent createIntent(String url);
+}
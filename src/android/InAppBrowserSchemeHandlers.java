@@ -0,0 +1,205 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import android.content.ActivityNotFoundException;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Build;
+
+import org.apache.cordova.CordovaInterface;
+
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registry of schemes opened outside of the InAppBrowser, keyed by lower case scheme.
+ *
+ * tel:, geo:, mailto:, market: and sms: are registered by default. Other plugins can add
+ * their own handlers with {@link #register}, and apps can list schemes in the
+ * InAppBrowserExternalSchemes preference to open them with ACTION_VIEW. Listing "intent"
+ * there enables intent: urls, which are restricted to browsable activities.
+ */
+public final class InAppBrowserSchemeHandlers {
+
+    private static final String LOG_TAG = "InAppBrowser";
+
+    // Schemes that always load in the WebView
+    private static final List<String> RESERVED_SCHEMES = Arrays.asList("http", "https", "file", "javascript");
+
+    private static final ConcurrentHashMap<String, InAppBrowserSchemeHandler> handlers = new ConcurrentHashMap<String, InAppBrowserSchemeHandler>();
+
+    /**
+     * Opens the url as it is, with the given action.
+     */
+    public static class ActionHandler implements InAppBrowserSchemeHandler {
+        private final String action;
+
+        public ActionHandler(String action) {
+            this.action = action;
+        }
+
+        public Intent createIntent(String url) {
+            Intent intent = new Intent(action);
+            intent.setData(Uri.parse(url));
+            return intent;
+        }
+    }
+
+    /**
+     * sms:5551212?body=This is the message
+     */
+    private static class SmsHandler implements InAppBrowserSchemeHandler {
+        public Intent createIntent(String url) {
+            Intent intent = new Intent(Intent.ACTION_VIEW);
+
+            // Get address
+            String address = null;
+            int parmIndex = url.indexOf('?');
+            if (parmIndex == -1) {
+                address = url.substring(4);
+            }
+            else {
+                address = url.substring(4, parmIndex);
+
+                // If body, then set sms body
+                Uri uri = Uri.parse(url);
+                String query = uri.getQuery();
+                if (query != null) {
+                    if (query.startsWith("body=")) {
+                        intent.putExtra("sms_body", query.substring(5));
+                    }
+                }
+            }
+            intent.setData(Uri.parse("sms:" + address));
+            intent.putExtra("address", address);
+            intent.setType("vnd.android-dir/mms-sms");
+            return intent;
+        }
+    }
+
+    /**
+     * intent:#Intent;...;end urls, limited to what a browser would launch: browsable
+     * activities, without an explicit component or selector.
+     */
+    public static class IntentHandler implements InAppBrowserSchemeHandler {
+        public Intent createIntent(String url) {
+            Intent intent;
+            try {
+                intent = Intent.parseUri(url, Intent.URI_INTENT_SCHEME);
+            } catch (URISyntaxException e) {
+                InAppBrowserLog.e(LOG_TAG, "Bad intent url %s: %s", url, e);
+                return null;
+            }
+            intent.addCategory(Intent.CATEGORY_BROWSABLE);
+            intent.setComponent(null);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1) {
+                intent.setSelector(null);
+            }
+            return intent;
+        }
+    }
+
+    static {
+        handlers.put("tel", new ActionHandler(Intent.ACTION_DIAL));
+        handlers.put("geo", new ActionHandler(Intent.ACTION_VIEW));
+        handlers.put("mailto", new ActionHandler(Intent.ACTION_VIEW));
+        handlers.put("market", new ActionHandler(Intent.ACTION_VIEW));
+        handlers.put("sms", new SmsHandler());
+    }
+
+    private InAppBrowserSchemeHandlers() {
+    }
+
+    /**
+     * Register a handler, replacing any handler of the same scheme.
+     *
+     * @param scheme the scheme, without the colon
+     * @param handler the handler
+     */
+    public static void register(String scheme, InAppBrowserSchemeHandler handler) {
+        handlers.put(scheme.toLowerCase(Locale.US), handler);
+    }
+
+    public static void unregister(String scheme) {
+        handlers.remove(scheme.toLowerCase(Locale.US));
+    }
+
+    /**
+     * Register the schemes listed in a preference value. Schemes the InAppBrowser loads
+     * itself, http, https, file and javascript, are ignored.
+     *
+     * @param schemes scheme names separated by commas or spaces
+     */
+    public static void registerExternalSchemes(String schemes) {
+        for (String scheme : schemes.split("[\\s,]+")) {
+            if (scheme.length() == 0 || handlers.containsKey(scheme.toLowerCase(Locale.US))) {
+                continue;
+            }
+            if (RESERVED_SCHEMES.contains(scheme.toLowerCase(Locale.US))) {
+                InAppBrowserLog.w(LOG_TAG, "Ignoring %s in InAppBrowserExternalSchemes", scheme);
+                continue;
+            }
+            register(scheme, "intent".equalsIgnoreCase(scheme) ? new IntentHandler() : new ActionHandler(Intent.ACTION_VIEW));
+        }
+    }
+
+    /**
+     * Find the handler of a url's scheme.
+     *
+     * @param url the url
+     * @return the handler, or null if the url is not opened externally
+     */
+    public static InAppBrowserSchemeHandler get(String url) {
+        int colon = url.indexOf(':');
+        if (colon <= 0) {
+            return null;
+        }
+        return handlers.get(url.substring(0, colon).toLowerCase(Locale.US));
+    }
+
+    /**
+     * Open a url externally if it has a registered scheme.
+     *
+     * Must be called on the UI thread.
+     *
+     * @param cordova the Cordova interface
+     * @param url the url
+     * @return true if the url has a registered scheme and must not be loaded in a WebView
+     */
+    public static boolean dispatch(CordovaInterface cordova, String url) {
+        InAppBrowserSchemeHandler handler = get(url);
+        if (handler == null) {
+            return false;
+        }
+        Intent intent = handler.createIntent(url);
+        if (intent == null) {
+            return true;
+        }
+        try {
+            cordova.getActivity().startActivity(intent);
+        } catch (ActivityNotFoundException e) {
+            InAppBrowserLog.e(LOG_TAG, "Error with %s: %s", url, e);
+        }
+        return true;
+    }
+}
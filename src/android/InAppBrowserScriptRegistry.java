@@ -0,0 +1,144 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import android.os.Build;
+import android.webkit.WebResourceResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scripts registered once and served to every window from memory, at a reserved url
+ * under https://inappbrowser.invalid/scripts/. A page loads them with a script element
+ * like any other script, so nothing but the url crosses the bridge when one is injected.
+ *
+ * The url of a script changes every time it is registered again, so that a page never
+ * gets an older body from the WebView's caches. Scripts are served without CORS headers,
+ * so page script cannot read their source, and unknown names get a 404 (an empty
+ * response before Android 5.0).
+ */
+public class InAppBrowserScriptRegistry implements InAppBrowserRequestInterceptor {
+
+    public static final String URL_PREFIX = "https://inappbrowser.invalid/scripts/";
+
+    private static final String MIME_TYPE = "application/javascript";
+    private static final String ENCODING = "utf-8";
+
+    private static final class Script {
+        final byte[] body;
+        final String url;
+
+        Script(byte[] body, String url) {
+            this.body = body;
+            this.url = url;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Script> scripts = new ConcurrentHashMap<String, Script>();
+    private final AtomicInteger version = new AtomicInteger();
+
+    /**
+     * Register a script, replacing any script of the same name.
+     *
+     * @param name the name, made of letters, digits, '.', '_' and '-'
+     * @param code the JavaScript source
+     * @return the url the script is served at
+     */
+    public String register(String name, String code) {
+        if (!isValidName(name)) {
+            throw new IllegalArgumentException("Invalid script name: " + name);
+        }
+        byte[] body;
+        try {
+            body = code.getBytes(ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+        String url = URL_PREFIX + name + "?v=" + version.incrementAndGet();
+        scripts.put(name, new Script(body, url));
+        return url;
+    }
+
+    public void unregister(String name) {
+        scripts.remove(name);
+    }
+
+    /**
+     * The url a registered script is served at.
+     *
+     * @param name the name of the script
+     * @return the url, or null if no script of that name is registered
+     */
+    public String getUrl(String name) {
+        Script script = scripts.get(name);
+        return script == null ? null : script.url;
+    }
+
+    @Override
+    public WebResourceResponse intercept(String method, String url, Map<String, String> headers) {
+        if (!url.startsWith(URL_PREFIX) || !"GET".equalsIgnoreCase(method)) {
+            return null;
+        }
+        int end = url.length();
+        for (int i = URL_PREFIX.length(); i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '?' || c == '#') {
+                end = i;
+                break;
+            }
+        }
+        Script script = scripts.get(url.substring(URL_PREFIX.length(), end));
+        if (script == null) {
+            // Never let a request for the reserved host reach the network
+            InputStream empty = new ByteArrayInputStream(new byte[0]);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                return new WebResourceResponse(MIME_TYPE, ENCODING, 404, "Not Found", new HashMap<String, String>(), empty);
+            }
+            return new WebResourceResponse(MIME_TYPE, ENCODING, empty);
+        }
+        WebResourceResponse response = new WebResourceResponse(MIME_TYPE, ENCODING, new ByteArrayInputStream(script.body));
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            HashMap<String, String> responseHeaders = new HashMap<String, String>();
+            // Each body has its own url, so it can be cached for good
+            responseHeaders.put("Cache-Control", "public, max-age=31536000, immutable");
+            response.setResponseHeaders(responseHeaders);
+        }
+        return response;
+    }
+
+    private static boolean isValidName(String name) {
+        if (name == null || name.length() == 0) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z') && !(c >= '0' && c <= '9')
+                    && c != '.' && c != '_' && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
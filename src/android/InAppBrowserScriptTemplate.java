@@ -0,0 +1,65 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+/**
+ * A JavaScript snippet with one "%s" slot for a string literal, such as the wrappers of
+ * the inject actions.
+ *
+ * The template is split once into the text before and after the slot. Rendering escapes
+ * the value straight into a builder sized for the whole script, instead of formatting
+ * the template and copying an escaped value produced separately. Instances are
+ * immutable.
+ */
+public final class InAppBrowserScriptTemplate {
+
+    private static final String SLOT = "%s";
+
+    private final String prefix;
+    private final String suffix;
+
+    /**
+     * Compile a template.
+     *
+     * @param template JavaScript source containing "%s" exactly once
+     */
+    public InAppBrowserScriptTemplate(String template) {
+        int slot = template.indexOf(SLOT);
+        if (slot < 0 || template.indexOf(SLOT, slot + SLOT.length()) >= 0) {
+            throw new IllegalArgumentException("Template must contain %s exactly once: " + template);
+        }
+        this.prefix = template.substring(0, slot);
+        this.suffix = template.substring(slot + SLOT.length());
+    }
+
+    /**
+     * Render the template with a value in the slot.
+     *
+     * @param value the value, which is inserted as a quoted and escaped string literal
+     * @return the script
+     */
+    public String render(String value) {
+        // Room for the quotes and a few escapes, so that plain text is never copied twice
+        StringBuilder script = new StringBuilder(prefix.length() + suffix.length() + value.length() + value.length() / 16 + 8);
+        script.append(prefix);
+        InAppBrowserEventEncoder.appendQuoted(script, value);
+        script.append(suffix);
+        return script.toString();
+    }
+}
@@ -0,0 +1,282 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Matches urls against a fixed set of patterns. Three kinds of pattern are supported:
+ *
+ * - "host:example.com" matches any url on that host, "host:*.example.com" any url on a
+ *   subdomain of it. Hosts are compared case insensitively.
+ * - A pattern containing '*' (any run of characters) or '?' (any one character) is a
+ *   glob matched against the whole url.
+ * - Anything else is a prefix of the url.
+ *
+ * The scheme and host of urls and patterns are compared case insensitively, the rest
+ * of the url case sensitively.
+ *
+ * The patterns are compiled once into a character trie holding the prefixes and, for
+ * each glob, its literal part up to the first wildcard, plus two hash sets of hosts. A
+ * match walks the url once through the trie, so host patterns and prefixes cost the
+ * same however many there are. Globs are only tried once the walk reaches the end of
+ * their literal part, but globs sharing that literal part, such as all those starting
+ * with "https://*" or with a wildcard, are then tried one after another. Instances are
+ * immutable and thread safe.
+ */
+public class InAppBrowserUrlMatcher {
+
+    private static final String HOST_PREFIX = "host:";
+
+    private static final class Node {
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        // The prefix pattern ending here, or null
+        String prefix;
+        // The globs whose literal part ends here, each with the pattern it came from, or null
+        ArrayList<String[]> globs;
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node addChild(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            i = -i - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, i);
+            System.arraycopy(children, 0, newChildren, 0, i);
+            System.arraycopy(keys, i, newKeys, i + 1, keys.length - i);
+            System.arraycopy(children, i, newChildren, i + 1, children.length - i);
+            Node node = new Node();
+            newKeys[i] = c;
+            newChildren[i] = node;
+            keys = newKeys;
+            children = newChildren;
+            return node;
+        }
+    }
+
+    private final Node root = new Node();
+    // Host name to pattern, for exact and for wildcard host patterns
+    private final HashMap<String, String> hosts = new HashMap<String, String>();
+    private final HashMap<String, String> domains = new HashMap<String, String>();
+    private final int size;
+
+    /**
+     * Compile a set of patterns.
+     *
+     * @param patterns the patterns, empty ones are ignored
+     */
+    public InAppBrowserUrlMatcher(String[] patterns) {
+        int count = 0;
+        for (String pattern : patterns) {
+            if (pattern == null || pattern.length() == 0) {
+                continue;
+            }
+            count++;
+            if (pattern.startsWith(HOST_PREFIX)) {
+                String host = pattern.substring(HOST_PREFIX.length()).toLowerCase(Locale.US);
+                if (host.startsWith("*.")) {
+                    domains.put(host.substring(2), pattern);
+                } else {
+                    hosts.put(host, pattern);
+                }
+                continue;
+            }
+            String normalized = lowerCaseAuthority(pattern);
+            int wildcard = firstWildcard(normalized);
+            int literal = wildcard < 0 ? normalized.length() : wildcard;
+            Node node = root;
+            for (int i = 0; i < literal; i++) {
+                node = node.addChild(normalized.charAt(i));
+            }
+            if (wildcard < 0) {
+                if (node.prefix == null) {
+                    node.prefix = pattern;
+                }
+            } else {
+                if (node.globs == null) {
+                    node.globs = new ArrayList<String[]>(1);
+                }
+                node.globs.add(new String[] { normalized, pattern });
+            }
+        }
+        this.size = count;
+    }
+
+    /**
+     * The number of patterns.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Find a pattern matching a url.
+     *
+     * @param url the url
+     * @return the first matching pattern found, or null if none matches
+     */
+    public String match(String url) {
+        if (!hosts.isEmpty() || !domains.isEmpty()) {
+            String host = hostOf(url);
+            if (host != null) {
+                String pattern = hosts.get(host);
+                if (pattern != null) {
+                    return pattern;
+                }
+                for (int dot = host.indexOf('.'); dot >= 0; dot = host.indexOf('.', dot + 1)) {
+                    pattern = domains.get(host.substring(dot + 1));
+                    if (pattern != null) {
+                        return pattern;
+                    }
+                }
+            }
+        }
+
+        url = lowerCaseAuthority(url);
+        Node node = root;
+        int length = url.length();
+        for (int i = 0; ; i++) {
+            if (node.prefix != null) {
+                return node.prefix;
+            }
+            if (node.globs != null) {
+                for (String[] glob : node.globs) {
+                    if (globMatches(glob[0], i, url, i)) {
+                        return glob[1];
+                    }
+                }
+            }
+            if (i == length) {
+                return null;
+            }
+            node = node.child(url.charAt(i));
+            if (node == null) {
+                return null;
+            }
+        }
+    }
+
+    private static int firstWildcard(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Match the rest of a glob against the rest of a url, backtracking to the last '*'
+     * on a mismatch.
+     */
+    private static boolean globMatches(String glob, int g, String url, int u) {
+        int globLength = glob.length();
+        int urlLength = url.length();
+        int star = -1;
+        int starUrl = 0;
+        while (u < urlLength) {
+            char c = g < globLength ? glob.charAt(g) : 0;
+            if (g < globLength && (c == '?' || c == url.charAt(u))) {
+                g++;
+                u++;
+            } else if (g < globLength && c == '*') {
+                star = g++;
+                starUrl = u;
+            } else if (star >= 0) {
+                g = star + 1;
+                u = ++starUrl;
+            } else {
+                return false;
+            }
+        }
+        while (g < globLength && glob.charAt(g) == '*') {
+            g++;
+        }
+        return g == globLength;
+    }
+
+    /**
+     * A url with its scheme and host, the part before any '/', '?' or '#' that follows
+     * "://", in lower case. The url itself if they already are.
+     */
+    static String lowerCaseAuthority(String url) {
+        int end = url.indexOf(':');
+        if (end < 0) {
+            return url;
+        }
+        if (url.startsWith("://", end)) {
+            end += 3;
+            int length = url.length();
+            while (end < length) {
+                char c = url.charAt(end);
+                if (c == '/' || c == '?' || c == '#') {
+                    break;
+                }
+                end++;
+            }
+        }
+        for (int i = 0; i < end; i++) {
+            char c = url.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                return url.substring(0, end).toLowerCase(Locale.US) + url.substring(end);
+            }
+        }
+        return url;
+    }
+
+    /**
+     * The lower case host of a hierarchical url, or null.
+     */
+    private static String hostOf(String url) {
+        int start = url.indexOf("://");
+        if (start < 0) {
+            return null;
+        }
+        start += 3;
+        int end = start;
+        int length = url.length();
+        while (end < length) {
+            char c = url.charAt(end);
+            if (c == '/' || c == '?' || c == '#') {
+                break;
+            }
+            if (c == '@') {
+                start = end + 1;
+            }
+            end++;
+        }
+        int port = url.lastIndexOf(':', end - 1);
+        if (port >= start && port > url.lastIndexOf(']', end - 1)) {
+            end = port;
+        }
+        return end > start ? url.substring(start, end).toLowerCase(Locale.US) : null;
+    }
+}
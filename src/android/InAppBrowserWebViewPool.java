@@ -0,0 +1,190 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import android.annotation.SuppressLint;
+import android.app.Activity;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.ViewGroup;
+import android.view.WindowManager.LayoutParams;
+import android.webkit.WebSettings;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+import android.widget.LinearLayout;
+
+import java.util.ArrayDeque;
+
+/**
+ * Keeps a bounded number of pre-configured WebViews around, so that opening a new
+ * InAppBrowser window does not have to pay for constructing a WebView every time.
+ *
+ * Views are created and handed out on the UI thread only. The hit/miss counters may
+ * be read from any thread.
+ */
+public class InAppBrowserWebViewPool {
+
+    private final Activity activity;
+    private final int maxSize;
+    private final ArrayDeque<WebView> idle = new ArrayDeque<WebView>();
+    private volatile int hits = 0;
+    private volatile int misses = 0;
+    private boolean warming = false;
+
+    public InAppBrowserWebViewPool(Activity activity, int maxSize) {
+        this.activity = activity;
+        this.maxSize = Math.max(0, maxSize);
+    }
+
+    /**
+     * Fills the pool up to its maximum size, creating one WebView each time the UI
+     * thread becomes idle so that warming never competes with app startup.
+     *
+     * Must be called on the UI thread.
+     */
+    public void warm() {
+        if (warming || idle.size() >= maxSize) {
+            return;
+        }
+        warming = true;
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                if (idle.size() < maxSize) {
+                    idle.push(create());
+                }
+                warming = idle.size() < maxSize;
+                return warming;
+            }
+        });
+    }
+
+    /**
+     * Takes a WebView out of the pool, or creates a new one if the pool is empty.
+     *
+     * @return a configured WebView, not attached to any parent
+     */
+    public WebView acquire() {
+        WebView view = idle.poll();
+        if (view != null) {
+            hits++;
+        } else {
+            misses++;
+            view = create();
+        }
+        warm();
+        return view;
+    }
+
+    /**
+     * Hands a WebView back to the pool once its window has been closed. The view is
+     * detached from its parent and its history is cleared; if the pool is already full
+     * the view is destroyed instead.
+     *
+     * The caller must have loaded about:blank into the view beforehand, and use
+     * {@link #discard} instead if that load did not finish.
+     *
+     * @param view the WebView to recycle
+     */
+    public void release(WebView view) {
+        if (view.getParent() instanceof ViewGroup) {
+            ((ViewGroup) view.getParent()).removeView(view);
+        }
+        if (idle.size() >= maxSize) {
+            destroy(view);
+            return;
+        }
+        view.stopLoading();
+        view.setWebViewClient(new WebViewClient());
+        view.setWebChromeClient(null);
+        view.clearHistory();
+        idle.push(view);
+    }
+
+    /**
+     * Destroys a WebView that must not be reused, such as one that never finished
+     * loading about:blank and may still hold the previous window's page.
+     *
+     * @param view the WebView to destroy
+     */
+    public void discard(WebView view) {
+        if (view.getParent() instanceof ViewGroup) {
+            ((ViewGroup) view.getParent()).removeView(view);
+        }
+        destroy(view);
+    }
+
+    /**
+     * Destroys every pooled WebView.
+     */
+    public void clear() {
+        WebView view;
+        while ((view = idle.poll()) != null) {
+            destroy(view);
+        }
+    }
+
+    /**
+     * Free a WebView's renderer and native memory right away instead of at finalization.
+     */
+    private static void destroy(WebView view) {
+        view.stopLoading();
+        view.setWebViewClient(new WebViewClient());
+        view.setWebChromeClient(null);
+        view.removeAllViews();
+        view.destroy();
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @SuppressLint("SetJavaScriptEnabled")
+    private WebView create() {
+        WebView view = new WebView(activity);
+        view.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+        WebSettings settings = view.getSettings();
+        settings.setJavaScriptEnabled(true);
+        settings.setJavaScriptCanOpenWindowsAutomatically(true);
+        settings.setPluginState(android.webkit.WebSettings.PluginState.ON);
+
+        //Toggle whether this is enabled or not!
+        Bundle appSettings = activity.getIntent().getExtras();
+        boolean enableDatabase = appSettings == null ? true : appSettings.getBoolean("InAppBrowserStorageEnabled", true);
+        if (enableDatabase) {
+            String databasePath = activity.getApplicationContext().getDir("inAppBrowserDB", Context.MODE_PRIVATE).getPath();
+            settings.setDatabasePath(databasePath);
+            settings.setDatabaseEnabled(true);
+        }
+        settings.setDomStorageEnabled(true);
+        settings.setLoadWithOverviewMode(true);
+        settings.setUseWideViewPort(true);
+        return view;
+    }
+}
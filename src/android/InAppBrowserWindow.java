@@ -0,0 +1,335 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.webkit.WebView;
+import android.widget.EditText;
+import android.widget.RelativeLayout;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+import org.json.JSONObject;
+
+import java.util.List;
+
+/**
+ * The state of one InAppBrowser window.
+ *
+ * The views are created, used and released on the UI thread only. The id, callback and
+ * bridge are fixed when the window is opened and may be read from any thread.
+ */
+public class InAppBrowserWindow {
+
+    private final String id;
+    private final InAppBrowserBridge bridge;
+    private CallbackContext callbackContext;
+    private final InAppBrowserEventEncoder events = new InAppBrowserEventEncoder();
+    private PluginResult.Status eventStatus = PluginResult.Status.OK;
+    private boolean flushScheduled = false;
+    private Runnable flushRunnable;
+    private Object frameCallback;
+
+    InAppBrowserDialog dialog;
+    WebView webView;
+    EditText edittext;
+    RelativeLayout toolbar;
+
+    boolean showLocationBar = true;
+    boolean showZoomControls = true;
+    boolean openWindowHidden = false;
+    boolean prefetch = false;
+    boolean useResponseCache = false;
+    boolean batchEvents = false;
+    boolean collapseRedirects = false;
+    InAppBrowserUrlMatcher interceptMatcher;
+    InAppBrowserOptions options = InAppBrowserOptions.EMPTY;
+    final InAppBrowserMetrics.Timeline timeline = new InAppBrowserMetrics.Timeline();
+    boolean clearAllCache = false;
+    boolean clearSessionCache = false;
+    boolean hardwareBackButton = true;
+    // The WebView is paused, and whether that is because the window is hidden. UI thread only.
+    boolean paused = false;
+    boolean throttled = false;
+
+    volatile boolean closed = false;
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Flushes the pending events on the next frame. Only loaded on API 16 and newer.
+     */
+    private static final class FrameFlusher {
+        static Object create(final InAppBrowserWindow window) {
+            return new Choreographer.FrameCallback() {
+                public void doFrame(long frameTimeNanos) {
+                    window.flushEvents();
+                }
+            };
+        }
+
+        static void post(Object callback) {
+            Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) callback);
+        }
+    }
+
+    /**
+     * A plugin result whose message is JSON text that has already been encoded.
+     */
+    private static final class EncodedResult extends PluginResult {
+        private final String json;
+
+        EncodedResult(PluginResult.Status status, String json) {
+            super(status);
+            this.json = json;
+        }
+
+        @Override
+        public int getMessageType() {
+            return MESSAGE_TYPE_JSON;
+        }
+
+        @Override
+        public String getMessage() {
+            return json;
+        }
+    }
+
+    public InAppBrowserWindow(String id, CallbackContext callbackContext, InAppBrowserBridge bridge) {
+        this.id = id;
+        this.callbackContext = callbackContext;
+        this.bridge = bridge;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * The JavaScript interface bridge of this window, or null if it uses prompt().
+     */
+    public InAppBrowserBridge getBridge() {
+        return bridge;
+    }
+
+    /**
+     * The WebView of this window, or null once the window has been closed.
+     */
+    public WebView getWebView() {
+        return webView;
+    }
+
+    /**
+     * Mark the window as closed.
+     *
+     * @return true if the window was open until now, false if it had already been closed
+     */
+    public synchronized boolean markClosed() {
+        if (closed) {
+            return false;
+        }
+        closed = true;
+        return true;
+    }
+
+    /**
+     * Checks to see if it is possible to go back one page in history, then does so.
+     */
+    public void goBack() {
+        if (webView != null && webView.canGoBack()) {
+            webView.goBack();
+        }
+    }
+
+    /**
+     * Can the web browser go back?
+     * @return boolean
+     */
+    public boolean canGoBack() {
+        return webView != null && webView.canGoBack();
+    }
+
+    /**
+     * Checks to see if it is possible to go forward one page in history, then does so.
+     */
+    public void goForward() {
+        if (webView != null && webView.canGoForward()) {
+            webView.goForward();
+        }
+    }
+
+    /**
+     * Pause the WebView's animations, plugins and geolocation. Must be called on the UI
+     * thread.
+     */
+    public void pause() {
+        if (webView != null && !paused) {
+            webView.onPause();
+            paused = true;
+        }
+    }
+
+    /**
+     * Resume the WebView after {@link #pause()}. Must be called on the UI thread.
+     */
+    public void resume() {
+        if (webView != null && paused) {
+            webView.onResume();
+            paused = false;
+        }
+    }
+
+    /**
+     * Send an event to this window's event callback.
+     *
+     * With batchEvents set, events are queued and sent together once per frame as one
+     * array. The order of the events is always kept: anything queued is sent ahead of the
+     * last event and of any other result sent to the callback.
+     *
+     * @param type the event type
+     * @param url the url of the event, or null
+     * @param code the error code, only sent along with a message
+     * @param message the error message, or null
+     * @param status the status code to return to the JavaScript environment
+     * @param keepCallback false for the last event the window will send
+     */
+    public void sendEvent(String type, String url, int code, String message,
+                          PluginResult.Status status, boolean keepCallback) {
+        sendEvent(type, url, code, message, null, status, keepCallback);
+    }
+
+    /**
+     * Send an event to this window's event callback.
+     *
+     * @param type the event type
+     * @param url the url of the event, or null
+     * @param code the error code, only sent along with a message
+     * @param message the error message, or null
+     * @param redirects the urls redirected through before url, or null
+     * @param status the status code to return to the JavaScript environment
+     * @param keepCallback false for the last event the window will send
+     * @see #sendEvent(String, String, int, String, PluginResult.Status, boolean)
+     */
+    public synchronized void sendEvent(String type, String url, int code, String message, List<String> redirects,
+                                       PluginResult.Status status, boolean keepCallback) {
+        if (callbackContext == null) {
+            return;
+        }
+        events.begin(type);
+        if (url != null) {
+            events.put("url", url);
+        }
+        if (message != null) {
+            events.put("code", code);
+            events.put("message", message);
+        }
+        if (redirects != null) {
+            events.put("redirects", redirects);
+        }
+        events.end();
+        // A batch is sent with the status of its first event, the JS callback gets both
+        if (events.getCount() == 1) {
+            eventStatus = status;
+        }
+
+        if (!batchEvents || !keepCallback) {
+            sendEvents(keepCallback);
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Send the queued events now.
+     */
+    public synchronized void flushEvents() {
+        flushScheduled = false;
+        if (callbackContext != null) {
+            sendEvents(true);
+        }
+    }
+
+    private void sendEvents(boolean keepCallback) {
+        String json = events.drain();
+        if (json == null) {
+            return;
+        }
+        PluginResult result = new EncodedResult(eventStatus, json);
+        result.setKeepCallback(keepCallback);
+        callbackContext.sendPluginResult(result);
+        if (!keepCallback) {
+            callbackContext = null;
+        }
+    }
+
+    private void scheduleFlush() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN && Looper.myLooper() == Looper.getMainLooper()) {
+            if (frameCallback == null) {
+                frameCallback = FrameFlusher.create(this);
+            }
+            FrameFlusher.post(frameCallback);
+        } else {
+            if (flushRunnable == null) {
+                flushRunnable = new Runnable() {
+                    public void run() {
+                        flushEvents();
+                    }
+                };
+            }
+            mainHandler.post(flushRunnable);
+        }
+    }
+
+    /**
+     * Create a new plugin result and send it to this window's event callback, after any
+     * queued events.
+     *
+     * @param obj a JSONObject contain event payload information
+     * @param keepCallback false for the last event the window will send
+     * @param status the status code to return to the JavaScript environment
+     */
+    public synchronized void sendUpdate(JSONObject obj, boolean keepCallback, PluginResult.Status status) {
+        if (callbackContext != null) {
+            sendEvents(true);
+            PluginResult result = new PluginResult(status, obj);
+            result.setKeepCallback(keepCallback);
+            callbackContext.sendPluginResult(result);
+            if (!keepCallback) {
+                callbackContext = null;
+            }
+        }
+    }
+
+    /**
+     * Send a result without an event payload, keeping the callback alive.
+     *
+     * @param result the result to send
+     */
+    public synchronized void sendResult(PluginResult result) {
+        if (callbackContext != null) {
+            sendEvents(true);
+            result.setKeepCallback(true);
+            callbackContext.sendPluginResult(result);
+        }
+    }
+}
@@ -19,10 +19,10 @@
 package org.apache.cordova.inappbrowser;
 
 import org.apache.cordova.CordovaWebView;
-import org.apache.cordova.LOG;
 import org.apache.cordova.PluginResult;
 import org.json.JSONArray;
 import org.json.JSONException;
+import org.json.JSONObject;
 
 import android.webkit.JsPromptResult;
 import android.webkit.WebChromeClient;
@@ -55,7 +55,7 @@ public class InAppChromeClient extends WebChromeClient {
     public void onExceededDatabaseQuota(String url, String databaseIdentifier, long currentQuota, long estimatedSize,
             long totalUsedQuota, WebStorage.QuotaUpdater quotaUpdater)
     {
-        LOG.d(LOG_TAG, "onExceededDatabaseQuota estimatedSize: %d  currentQuota: %d  totalUsedQuota: %d", estimatedSize, currentQuota, totalUsedQuota);
+        InAppBrowserLog.d(LOG_TAG, "onExceededDatabaseQuota estimatedSize: %d  currentQuota: %d  totalUsedQuota: %d", estimatedSize, currentQuota, totalUsedQuota);
         quotaUpdater.updateQuota(MAX_QUOTA);
     }
 
@@ -91,6 +91,13 @@ public class InAppChromeClient extends WebChromeClient {
      * If present, the prompt message is expected to be a JSON-encoded value to
      * pass to the callback. A JSON_EXCEPTION is returned if the JSON is invalid.
      *
+     * Streamed results are sent one chunk per prompt, with a default value of the form:
+     *
+     * gap-iab-chunk://<index>/<count>/<callbackId>
+     *
+     * where the prompt message is the raw text of the chunk. Chunks are passed on
+     * without being parsed or joined.
+     *
      * @param view
      * @param url
      * @param message
@@ -101,20 +108,26 @@ public class InAppChromeClient extends WebChromeClient {
     public boolean onJsPrompt(WebView view, String url, String message, String defaultValue, JsPromptResult result) {
         // See if the prompt string uses the 'gap-iab' protocol. If so, the remainder should be the id of a callback to execute.
         if (defaultValue != null && defaultValue.startsWith("gap")) {
-            if(defaultValue.startsWith("gap-iab://")) {
-                PluginResult scriptResult;
-                String scriptCallbackId = defaultValue.substring(10);
-                if (scriptCallbackId.startsWith("InAppBrowser")) {
-                    if(message == null || message.length() == 0) {
-                        scriptResult = new PluginResult(PluginResult.Status.OK, new JSONArray());
-                    } else {
-                        try {
-                            scriptResult = new PluginResult(PluginResult.Status.OK, new JSONArray(message));
-                        } catch(JSONException e) {
-                            scriptResult = new PluginResult(PluginResult.Status.JSON_EXCEPTION, e.getMessage());
+            if(defaultValue.startsWith("gap-iab-chunk://")) {
+                String[] parts = defaultValue.substring(16).split("/", 3);
+                if (parts.length == 3) {
+                    try {
+                        int index = Integer.parseInt(parts[0]);
+                        int count = Integer.parseInt(parts[1]);
+                        if (sendScriptChunk(this.webView, parts[2], index, count, message)) {
+                            result.confirm("");
+                            return true;
                         }
+                    } catch (NumberFormatException e) {
+                        InAppBrowserLog.w(LOG_TAG, "Invalid chunk header: %s", defaultValue);
                     }
-                    this.webView.sendPluginResult(scriptResult, scriptCallbackId);
+                }
+                result.cancel();
+                return true;
+            }
+            else if(defaultValue.startsWith("gap-iab://")) {
+                String scriptCallbackId = defaultValue.substring(10);
+                if (sendScriptResult(this.webView, scriptCallbackId, message)) {
                     result.confirm("");
                     return true;
                 }
@@ -122,7 +135,7 @@ public class InAppChromeClient extends WebChromeClient {
             else
             {
                 // Anything else with a gap: prefix should get this message
-                LOG.w(LOG_TAG, "InAppBrowser does not support Cordova API calls: " + url + " " + defaultValue); 
+                InAppBrowserLog.w(LOG_TAG, "InAppBrowser does not support Cordova API calls: %s %s", url, defaultValue); 
                 result.cancel();
                 return true;
             }
@@ -130,4 +143,62 @@ public class InAppChromeClient extends WebChromeClient {
         return false;
     }
 
+    /**
+     * Send the result of an injected script to the InAppBrowser callback it belongs to.
+     *
+     * This is shared by the prompt bridge and the {@link InAppBrowserBridge} channel, so
+     * that both route and validate callback ids the same way.
+     *
+     * @param webView     the Cordova WebView to send the result through
+     * @param callbackId  the callback to trigger, which must belong to the InAppBrowser plugin
+     * @param message     the JSON-encoded array to pass to the callback, or null/empty for none
+     * @return true if the result was sent, false if the callback id was rejected
+     */
+    static boolean sendScriptResult(CordovaWebView webView, String callbackId, String message) {
+        if (!callbackId.startsWith("InAppBrowser")) {
+            return false;
+        }
+        PluginResult scriptResult;
+        if(message == null || message.length() == 0) {
+            scriptResult = new PluginResult(PluginResult.Status.OK, new JSONArray());
+        } else {
+            try {
+                scriptResult = new PluginResult(PluginResult.Status.OK, new JSONArray(message));
+            } catch(JSONException e) {
+                scriptResult = new PluginResult(PluginResult.Status.JSON_EXCEPTION, e.getMessage());
+            }
+        }
+        webView.sendPluginResult(scriptResult, callbackId);
+        return true;
+    }
+
+    /**
+     * Send one chunk of a streamed script result to the InAppBrowser callback it belongs
+     * to. The callback is kept alive until the last chunk has been sent.
+     *
+     * @param webView     the Cordova WebView to send the result through
+     * @param callbackId  the callback to trigger, which must belong to the InAppBrowser plugin
+     * @param index       the zero-based index of the chunk
+     * @param count       the total number of chunks
+     * @param chunk       the text of the chunk
+     * @return true if the chunk was sent, false if the callback id was rejected
+     */
+    static boolean sendScriptChunk(CordovaWebView webView, String callbackId, int index, int count, String chunk) {
+        if (!callbackId.startsWith("InAppBrowser")) {
+            return false;
+        }
+        PluginResult chunkResult;
+        try {
+            JSONObject obj = new JSONObject();
+            obj.put("index", index);
+            obj.put("count", count);
+            obj.put("data", chunk == null ? "" : chunk);
+            chunkResult = new PluginResult(PluginResult.Status.OK, obj);
+        } catch (JSONException e) {
+            chunkResult = new PluginResult(PluginResult.Status.JSON_EXCEPTION, e.getMessage());
+        }
+        chunkResult.setKeepCallback(index < count - 1);
+        webView.sendPluginResult(chunkResult, callbackId);
+        return true;
+    }
 }
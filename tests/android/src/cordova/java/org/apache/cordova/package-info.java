@@ -0,0 +1,29 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+/**
+ * A stand-in for the part of the cordova-android framework the plugin uses, so that
+ * the plugin can be compiled and tested on a plain JVM. cordova-android is not
+ * published to a Maven repository.
+ *
+ * Only members found in both the 3.x and 4.x frameworks are here, which is what the
+ * plugin supports, so code relying on either version alone does not compile. The
+ * behavior follows cordova-android 4.x where it matters to the plugin, such as when a
+ * callback is finished.
+ */
+package org.apache.cordova;
@@ -0,0 +1,109 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the parsing of open's feature string, from the cache and when every string is
+ * new, against the StringTokenizer parser InAppBrowserOptions replaced, and times
+ * reading the options a window is created with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InAppBrowserOptionsBenchmark {
+
+    private static final String FEATURES = "location=no,zoom=no,hidden=yes,clearcache=yes,hardwareback=yes,toolbarcolor=#336699";
+    // More strings than the cache holds, so that each parse misses it
+    private static final int UNCACHED_COUNT = 64;
+
+    private String[] uncached;
+    private InAppBrowserOptions options;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        uncached = new String[UNCACHED_COUNT];
+        for (int i = 0; i < UNCACHED_COUNT; i++) {
+            uncached[i] = FEATURES + ",id" + i + "=yes";
+        }
+        options = InAppBrowserOptions.parse(FEATURES);
+    }
+
+    @Benchmark
+    public InAppBrowserOptions parseCached() {
+        return InAppBrowserOptions.parse(FEATURES);
+    }
+
+    @Benchmark
+    public InAppBrowserOptions parseUncached() {
+        return InAppBrowserOptions.parse(uncached[next++ & (UNCACHED_COUNT - 1)]);
+    }
+
+    @Benchmark
+    public HashMap<String, Boolean> parseWithTokenizer() {
+        return parseFeature(uncached[next++ & (UNCACHED_COUNT - 1)]);
+    }
+
+    @Benchmark
+    public int readOptions() {
+        int bits = 0;
+        bits |= options.getBoolean("location", true) ? 1 : 0;
+        bits |= options.getBoolean("zoom", true) ? 2 : 0;
+        bits |= options.getBoolean("hidden", false) ? 4 : 0;
+        bits |= options.getBoolean("clearcache", false) ? 8 : 0;
+        bits |= options.getBoolean("hardwareback", true) ? 16 : 0;
+        return bits ^ options.getColor("toolbarcolor", 0);
+    }
+
+    /**
+     * The parser InAppBrowser used before InAppBrowserOptions.
+     */
+    private static HashMap<String, Boolean> parseFeature(String optString) {
+        HashMap<String, Boolean> map = new HashMap<String, Boolean>();
+        StringTokenizer features = new StringTokenizer(optString, ",");
+        StringTokenizer option;
+        while (features.hasMoreElements()) {
+            option = new StringTokenizer(features.nextToken(), "=");
+            if (option.hasMoreElements()) {
+                String key = option.nextToken();
+                Boolean value = option.nextToken().equals("no") ? Boolean.FALSE : Boolean.TRUE;
+                map.put(key, value);
+            }
+        }
+        return map;
+    }
+}
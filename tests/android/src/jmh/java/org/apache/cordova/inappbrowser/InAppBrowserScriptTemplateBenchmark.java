@@ -0,0 +1,80 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import org.json.JSONArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the wrapping of an injected script, from a one-liner to a multi-megabyte bundle,
+ * with InAppBrowserScriptTemplate and with the String.format and JSONArray escaping it
+ * replaced. The wrapper is the one injectScriptCode uses when the result is wanted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class InAppBrowserScriptTemplateBenchmark {
+
+    private static final String WRAPPER = "prompt(JSON.stringify([eval(%s)]), 'gap-iab://InAppBrowser1234567890')";
+    // Quotes, a tab, a newline and a closing tag, as in minified scripts
+    private static final String LINE = "var s = \"<b>\\t</b>\";\tdocument.title = 'a' + s;\n";
+
+    /** The length of the script in characters. */
+    @Param({"100", "500000", "4000000"})
+    public int size;
+
+    private InAppBrowserScriptTemplate template;
+    private String source;
+
+    @Setup
+    public void setUp() {
+        template = new InAppBrowserScriptTemplate(WRAPPER);
+        StringBuilder builder = new StringBuilder(size + LINE.length());
+        while (builder.length() < size) {
+            builder.append(LINE);
+        }
+        source = builder.substring(0, size);
+    }
+
+    @Benchmark
+    public String render() {
+        return template.render(source);
+    }
+
+    @Benchmark
+    public String format() {
+        String json = new JSONArray().put(source).toString();
+        return String.format(WRAPPER, json.substring(1, json.length() - 1));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times InAppBrowserUrlMatcher.match for growing numbers of each kind of pattern, with
+ * urls none of them match. Prefixes and host patterns should cost about the same at
+ * every size; globs sharing the literal part "https://" grow with their number.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InAppBrowserUrlMatcherBenchmark {
+
+    private static final String[] URLS = {
+        "https://www.example.com/account/settings?tab=privacy",
+        "https://cdn.example.org/assets/app.js",
+        "http://news.example.net/2016/01/story.html#comments",
+        "myapp://callback?code=abc123",
+    };
+
+    @Param({"prefix", "host", "glob"})
+    public String kind;
+
+    @Param({"1", "10", "100", "1000"})
+    public int count;
+
+    private InAppBrowserUrlMatcher matcher;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        String[] patterns = new String[count];
+        for (int i = 0; i < count; i++) {
+            if ("prefix".equals(kind)) {
+                patterns[i] = "https://site" + i + ".example.com/path/";
+            } else if ("host".equals(kind)) {
+                patterns[i] = "host:*.site" + i + ".example.com";
+            } else {
+                patterns[i] = "https://*.site" + i + ".example.com/*";
+            }
+        }
+        matcher = new InAppBrowserUrlMatcher(patterns);
+    }
+
+    @Benchmark
+    public String match() {
+        return matcher.match(URLS[next++ & 3]);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import android.app.Activity;
+import android.content.res.Resources;
+
+import org.apache.cordova.CordovaInterface;
+import org.robolectric.Robolectric;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A CordovaInterface on a Robolectric activity. Background tasks run right away on the
+ * calling thread, so that tests see their effects without waiting.
+ */
+public class FakeCordovaInterface implements CordovaInterface {
+
+    /**
+     * An activity of an app the plugin is installed in. The tests are not built into an
+     * app, so the toolbar icons the plugin adds to it are stood in for by framework ones.
+     */
+    public static class AppActivity extends Activity {
+        private static final Map<String, Integer> ICONS = new HashMap<String, Integer>();
+        static {
+            ICONS.put("ic_action_previous_item", android.R.drawable.ic_media_previous);
+            ICONS.put("ic_action_next_item", android.R.drawable.ic_media_next);
+            ICONS.put("ic_action_remove", android.R.drawable.ic_menu_close_clear_cancel);
+        }
+
+        private Resources resources;
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public Resources getResources() {
+            if (resources == null) {
+                Resources base = super.getResources();
+                resources = new Resources(base.getAssets(), base.getDisplayMetrics(), base.getConfiguration()) {
+                    @Override
+                    public int getIdentifier(String name, String defType, String defPackage) {
+                        Integer icon = ICONS.get(name);
+                        if (icon != null && "drawable".equals(defType)) {
+                            return icon;
+                        }
+                        return super.getIdentifier(name, defType, defPackage);
+                    }
+                };
+            }
+            return resources;
+        }
+    }
+
+    private final Activity activity = Robolectric.buildActivity(AppActivity.class).setup().get();
+    private final ExecutorService threadPool = new AbstractExecutorService() {
+        private boolean shutdown;
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    };
+
+    @Override
+    public Activity getActivity() {
+        return activity;
+    }
+
+    @Override
+    public ExecutorService getThreadPool() {
+        return threadPool;
+    }
+}
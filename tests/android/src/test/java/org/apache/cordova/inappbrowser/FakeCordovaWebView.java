@@ -0,0 +1,88 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import org.apache.cordova.CordovaResourceApi;
+import org.apache.cordova.CordovaWebView;
+import org.apache.cordova.PluginManager;
+import org.apache.cordova.PluginResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Cordova WebView which records what the plugin sends it instead of running a page.
+ */
+public class FakeCordovaWebView implements CordovaWebView {
+
+    /** What PluginManager.shouldAllowNavigation answers, null for no opinion. */
+    public Boolean allowNavigation;
+    public final List<String> loadedUrls = new ArrayList<String>();
+    private final List<PluginResult> results = new ArrayList<PluginResult>();
+    private final List<String> callbackIds = new ArrayList<String>();
+    private final CordovaResourceApi resourceApi = new CordovaResourceApi();
+    private final PluginManager pluginManager = new PluginManager() {
+        @Override
+        public Boolean shouldAllowNavigation(String url) {
+            return allowNavigation;
+        }
+    };
+
+    @Override
+    public void loadUrl(String url) {
+        loadedUrls.add(url);
+    }
+
+    @Override
+    public CordovaResourceApi getResourceApi() {
+        return resourceApi;
+    }
+
+    @Override
+    public synchronized void sendPluginResult(PluginResult result, String callbackId) {
+        results.add(result);
+        callbackIds.add(callbackId);
+    }
+
+    // Found by CordovaCompat through reflection, like the 4.x getter
+    public PluginManager getPluginManager() {
+        return pluginManager;
+    }
+
+    /**
+     * Returns the results sent to a callback, oldest first.
+     */
+    public synchronized List<PluginResult> getResults(String callbackId) {
+        List<PluginResult> list = new ArrayList<PluginResult>();
+        for (int i = 0; i < results.size(); i++) {
+            if (callbackIds.get(i).equals(callbackId)) {
+                list.add(results.get(i));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Returns the last result sent to a callback, or null.
+     */
+    public PluginResult getLastResult(String callbackId) {
+        List<PluginResult> list = getResults(callbackId);
+        return list.isEmpty() ? null : list.get(list.size() - 1);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class InAppBrowserEventEncoderTest {
+
+    private static String quote(String value) {
+        StringBuilder out = new StringBuilder();
+        InAppBrowserEventEncoder.appendQuoted(out, value);
+        return out.toString();
+    }
+
+    @Test
+    public void leavesPlainTextAlone() {
+        assertEquals("\"https://example.com/a?b=c\"", quote("https://example.com/a?b=c"));
+        assertEquals("\"\"", quote(""));
+        assertEquals("\"caf\u00e9 \ud83d\ude00\"", quote("caf\u00e9 \ud83d\ude00"));
+    }
+
+    @Test
+    public void escapesQuotesAndBackslashes() {
+        assertEquals("\"a\\\"b\\\\c\"", quote("a\"b\\c"));
+    }
+
+    @Test
+    public void escapesControlCharacters() {
+        assertEquals("\"\\n\\r\\t\\u0000\\u001f\\u0008\"", quote("\n\r\t\u0000\u001f\b"));
+    }
+
+    @Test
+    public void escapesLineAndParagraphSeparators() {
+        assertEquals("\"a\\u2028b\\u2029\"", quote("a\u2028b\u2029"));
+    }
+
+    @Test
+    public void drainsNothing() {
+        assertNull(new InAppBrowserEventEncoder().drain());
+    }
+
+    @Test
+    public void drainsOneEventAsObject() {
+        InAppBrowserEventEncoder encoder = new InAppBrowserEventEncoder();
+        encoder.begin("loadstart").put("url", "http://a/\"").put("code", -2).end();
+        assertEquals(1, encoder.getCount());
+        assertEquals("{\"type\":\"loadstart\",\"url\":\"http://a/\\\"\",\"code\":-2}", encoder.drain());
+        assertEquals(0, encoder.getCount());
+        assertNull(encoder.drain());
+    }
+
+    @Test
+    public void drainsSeveralEventsAsArray() {
+        InAppBrowserEventEncoder encoder = new InAppBrowserEventEncoder();
+        encoder.begin("loadstart").put("message", (String) null).end();
+        encoder.begin("loadstop").put("redirects", Arrays.asList("http://a/", "http://b/")).end();
+        assertEquals("[{\"type\":\"loadstart\",\"message\":null},"
+                + "{\"type\":\"loadstop\",\"redirects\":[\"http://a/\",\"http://b/\"]}]", encoder.drain());
+
+        encoder.begin("exit").end();
+        assertEquals("{\"type\":\"exit\"}", encoder.drain());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InAppBrowserMetricsTest {
+
+    @Test
+    public void smallValuesHaveTheirOwnBucket() {
+        for (int micros = 0; micros < 8; micros++) {
+            assertEquals(micros, InAppBrowserMetrics.upperBound(InAppBrowserMetrics.bucket(micros)));
+        }
+        assertEquals(0, InAppBrowserMetrics.bucket(-5));
+    }
+
+    @Test
+    public void bucketsAreContiguous() {
+        long previous = -1;
+        for (int bucket = 0; bucket < 144; bucket++) {
+            long upper = InAppBrowserMetrics.upperBound(bucket);
+            assertTrue(upper > previous);
+            assertEquals(bucket, InAppBrowserMetrics.bucket(upper));
+            assertEquals(bucket, InAppBrowserMetrics.bucket(previous + 1));
+            previous = upper;
+        }
+    }
+
+    @Test
+    public void bucketsAreWithinAQuarterOfTheirValue() {
+        for (long micros = 4; micros < 100000000L; micros = micros * 3 / 2 + 1) {
+            long upper = InAppBrowserMetrics.upperBound(InAppBrowserMetrics.bucket(micros));
+            assertTrue(upper >= micros);
+            assertTrue(upper - micros <= micros / 4);
+        }
+    }
+
+    @Test
+    public void largeValuesLandInTheLastBucket() {
+        assertEquals(143, InAppBrowserMetrics.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void recordsPercentiles() throws Exception {
+        InAppBrowserMetrics metrics = new InAppBrowserMetrics();
+        for (int i = 1; i <= 100; i++) {
+            InAppBrowserMetrics.Timeline timeline = new InAppBrowserMetrics.Timeline();
+            timeline.mark(InAppBrowserMetrics.EXECUTE, 1000000000L);
+            // 1 to 100 ms
+            timeline.mark(InAppBrowserMetrics.PAGE_FINISHED, 1000000000L + i * 1000000L);
+            metrics.record(timeline);
+        }
+        JSONObject stats = metrics.toJSON().getJSONObject("pageFinished");
+        assertEquals(100, stats.getLong("count"));
+        assertEquals(50, stats.getDouble("p50"), 50 / 4.0);
+        assertEquals(95, stats.getDouble("p95"), 95 / 4.0);
+        assertTrue(stats.getDouble("p99") >= 99);
+        assertFalse(metrics.toJSON().has("pageStarted"));
+
+        metrics.reset();
+        assertEquals(0, metrics.toJSON().length());
+    }
+
+    @Test
+    public void ignoresTimelineWithoutStart() throws Exception {
+        InAppBrowserMetrics metrics = new InAppBrowserMetrics();
+        InAppBrowserMetrics.Timeline timeline = new InAppBrowserMetrics.Timeline();
+        timeline.mark(InAppBrowserMetrics.PAGE_FINISHED, 5);
+        metrics.record(timeline);
+        assertEquals(0, metrics.toJSON().length());
+    }
+}
@@ -0,0 +1,101 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class InAppBrowserOptionsTest {
+
+    @Test
+    public void noFeaturesAreEmpty() {
+        assertSame(InAppBrowserOptions.EMPTY, InAppBrowserOptions.parse(null));
+        assertSame(InAppBrowserOptions.EMPTY, InAppBrowserOptions.parse(""));
+        assertSame(InAppBrowserOptions.EMPTY, InAppBrowserOptions.parse("null"));
+    }
+
+    @Test
+    public void parsesKeysAndValues() {
+        InAppBrowserOptions options = InAppBrowserOptions.parse("location=no,zoom=yes,cachemode=nocache");
+        assertFalse(options.getBoolean("location", true));
+        assertTrue(options.getBoolean("zoom", false));
+        assertEquals("nocache", options.getString("cachemode", "default"));
+        assertFalse(options.has("hidden"));
+        assertTrue(options.getBoolean("hidden", true));
+    }
+
+    @Test
+    public void keysAreCaseInsensitiveAndTrimmed() {
+        InAppBrowserOptions options = InAppBrowserOptions.parse(" Location = NO , HIDDEN=yes");
+        assertFalse(options.getBoolean("location", true));
+        assertTrue(options.getBoolean("hidden", false));
+    }
+
+    @Test
+    public void bareKeyIsYes() {
+        InAppBrowserOptions options = InAppBrowserOptions.parse("hidden,location=no");
+        assertTrue(options.has("hidden"));
+        assertTrue(options.getBoolean("hidden", false));
+        assertEquals("fallback", options.getString("hidden", "fallback"));
+        assertFalse(options.getBoolean("location", true));
+    }
+
+    @Test
+    public void ignoresEmptyEntries() {
+        InAppBrowserOptions options = InAppBrowserOptions.parse(",,zoom=no,");
+        assertFalse(options.getBoolean("zoom", true));
+        assertEquals("{zoom=no}", options.toString());
+    }
+
+    @Test
+    public void valueMayContainEquals() {
+        assertEquals("a=b", InAppBrowserOptions.parse("key=a=b").getString("key", null));
+    }
+
+    @Test
+    public void parsesIntegers() {
+        InAppBrowserOptions options = InAppBrowserOptions.parse("size=42,bad=4x,empty=");
+        assertEquals(42, options.getInt("size", 0));
+        assertEquals(7, options.getInt("bad", 7));
+        assertEquals(7, options.getInt("empty", 7));
+        assertEquals(7, options.getInt("missing", 7));
+    }
+
+    @Test
+    public void parsesColors() {
+        InAppBrowserOptions options = InAppBrowserOptions.parse("rgb=#336699,argb=#80336699,short=#369,name=red,sign=#-12345,empty=");
+        assertEquals(0xff336699, options.getColor("rgb", 0));
+        assertEquals(0x80336699, options.getColor("argb", 0));
+        assertEquals(7, options.getColor("short", 7));
+        assertEquals(7, options.getColor("name", 7));
+        assertEquals(7, options.getColor("sign", 7));
+        assertEquals(7, options.getColor("empty", 7));
+        assertEquals(7, options.getColor("missing", 7));
+    }
+
+    @Test
+    public void cachesParsedFeatures() {
+        String features = "location=yes,cachetest=1";
+        assertSame(InAppBrowserOptions.parse(features), InAppBrowserOptions.parse(features));
+    }
+}
@@ -0,0 +1,53 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class InAppBrowserScriptTemplateTest {
+
+    @Test
+    public void rendersQuotedValue() {
+        InAppBrowserScriptTemplate template = new InAppBrowserScriptTemplate("eval(%s);");
+        assertEquals("eval(\"alert(1)\");", template.render("alert(1)"));
+    }
+
+    @Test
+    public void escapesValue() {
+        InAppBrowserScriptTemplate template = new InAppBrowserScriptTemplate("(function() { var s = %s; })()");
+        assertEquals("(function() { var s = \"a\\\"b\\\\c\\n\\u2028\"; })()", template.render("a\"b\\c\n\u2028"));
+    }
+
+    @Test
+    public void rendersEmptyValue() {
+        assertEquals("[\"\"]", new InAppBrowserScriptTemplate("[%s]").render(""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTemplateWithoutSlot() {
+        new InAppBrowserScriptTemplate("alert(1)");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTemplateWithTwoSlots() {
+        new InAppBrowserScriptTemplate("f(%s, %s)");
+    }
+}
@@ -0,0 +1,153 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import android.app.Dialog;
+import android.os.Looper;
+import android.webkit.WebView;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.CordovaArgs;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowDialog;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Opens and closes many windows in a row and checks that nothing of the closed ones is
+ * left behind: each WebView is either back in the pool or destroyed, and the windows
+ * and heap do not grow with the number of cycles. Renderer memory has no counterpart
+ * on the JVM; a destroyed WebView is what frees it on a device.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class InAppBrowserSoakTest {
+
+    private static final int CYCLES = 1000;
+    // Longer than InAppBrowser.RELEASE_TIMEOUT
+    private static final Duration RELEASE_WAIT = Duration.ofMillis(600);
+    private static final int WARMUP_CYCLES = CYCLES / 10;
+    // Robolectric keeps a few KB of the drawing of every window; a window that leaked
+    // with its WebView and dialog would hold hundreds
+    private static final long MAX_HEAP_GROWTH_PER_CYCLE = 32 * 1024;
+
+    private FakeCordovaWebView webView;
+    private InAppBrowser plugin;
+    private int callbacks;
+
+    @Before
+    public void setUp() {
+        webView = new FakeCordovaWebView();
+        plugin = new InAppBrowser();
+        plugin.initialize(new FakeCordovaInterface(), webView);
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private void execute(String action, Object... args) throws JSONException {
+        JSONArray array = new JSONArray();
+        for (Object arg : args) {
+            array.put(arg);
+        }
+        plugin.execute(action, new CordovaArgs(array), new CallbackContext("InAppBrowser" + (++callbacks), webView));
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    /**
+     * Open a window and close it. The WebView of every other window finishes unloading
+     * its page and can be pooled; the others time out and are destroyed.
+     */
+    private WeakReference<InAppBrowserWindow> cycle(int i, Map<WebView, Boolean> views) throws JSONException {
+        String id = "w" + i;
+        execute("open", "https://example.com/" + i, "_blank", "location=yes", id);
+        InAppBrowserWindow window = plugin.getWindow(id);
+        WebView view = window.getWebView();
+        views.put(view, Boolean.TRUE);
+        Dialog dialog = window.dialog;
+        assertTrue(dialog.isShowing());
+
+        execute("close", id);
+        if (i % 2 == 0) {
+            shadowOf(view).getWebViewClient().onPageFinished(view, "about:blank");
+        }
+        shadowOf(Looper.getMainLooper()).idleFor(RELEASE_WAIT);
+        assertNull(plugin.getWindow(id));
+        assertNull(window.getWebView());
+        assertFalse(dialog.isShowing());
+        // Robolectric keeps every dialog ever shown, which is not what is being tested
+        ShadowDialog.reset();
+        return new WeakReference<InAppBrowserWindow>(window);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Test
+    public void releasesEveryClosedWindow() throws JSONException {
+        Map<WebView, Boolean> views = new WeakHashMap<WebView, Boolean>();
+        List<WeakReference<InAppBrowserWindow>> windows = new ArrayList<WeakReference<InAppBrowserWindow>>();
+        long heapAfterWarmup = 0;
+        for (int i = 0; i < CYCLES; i++) {
+            windows.add(cycle(i, views));
+            if (i == WARMUP_CYCLES) {
+                heapAfterWarmup = usedHeap();
+            }
+        }
+        long heapGrowth = usedHeap() - heapAfterWarmup;
+
+        int live = 0;
+        for (WebView view : views.keySet()) {
+            if (!shadowOf(view).wasDestroyCalled()) {
+                live++;
+            }
+        }
+        assertTrue("WebViews not destroyed: " + live, live <= plugin.getWebViewPool().getMaxSize());
+        assertTrue(plugin.getWebViewPool().getHits() > 0);
+
+        int retained = 0;
+        for (WeakReference<InAppBrowserWindow> window : windows) {
+            if (window.get() != null) {
+                retained++;
+            }
+        }
+        assertEquals(0, retained);
+        assertTrue("Heap grew by " + heapGrowth + " bytes",
+                heapGrowth < MAX_HEAP_GROWTH_PER_CYCLE * (CYCLES - WARMUP_CYCLES));
+    }
+}
@@ -0,0 +1,199 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import android.os.Looper;
+import android.webkit.WebView;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.CordovaArgs;
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class InAppBrowserTest {
+
+    private static final String URL = "https://example.com/";
+
+    private FakeCordovaWebView webView;
+    private InAppBrowser plugin;
+
+    @Before
+    public void setUp() {
+        webView = new FakeCordovaWebView();
+        plugin = new InAppBrowser();
+        plugin.initialize(new FakeCordovaInterface(), webView);
+        idle();
+    }
+
+    private boolean execute(String action, String callbackId, Object... args) throws JSONException {
+        JSONArray array = new JSONArray();
+        for (Object arg : args) {
+            array.put(arg == null ? JSONObject.NULL : arg);
+        }
+        boolean valid = plugin.execute(action, new CordovaArgs(array), new CallbackContext(callbackId, webView));
+        idle();
+        return valid;
+    }
+
+    private static void idle() {
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private List<String> eventTypes(String callbackId) throws JSONException {
+        List<String> types = new java.util.ArrayList<String>();
+        for (PluginResult result : webView.getResults(callbackId)) {
+            if (result.getMessageType() != PluginResult.MESSAGE_TYPE_JSON) {
+                continue;
+            }
+            Object message = new org.json.JSONTokener(result.getMessage()).nextValue();
+            JSONArray events = message instanceof JSONArray ? (JSONArray)message : new JSONArray().put(message);
+            for (int i = 0; i < events.length(); i++) {
+                types.add(events.getJSONObject(i).getString("type"));
+            }
+        }
+        return types;
+    }
+
+    @Test
+    public void opensBlankWindow() throws JSONException {
+        assertTrue(execute("open", "InAppBrowser1", URL, "_blank", "location=no", "w1"));
+
+        InAppBrowserWindow window = plugin.getWindow("w1");
+        assertNotNull(window);
+        WebView view = window.getWebView();
+        assertNotNull(view);
+        assertEquals(URL, shadowOf(view).getLastLoadedUrl());
+        PluginResult first = webView.getResults("InAppBrowser1").get(0);
+        assertEquals(PluginResult.Status.OK.ordinal(), first.getStatus());
+        assertTrue(first.getKeepCallback());
+        assertTrue(webView.loadedUrls.isEmpty());
+    }
+
+    @Test
+    public void numbersWindowsOpenedWithoutId() throws JSONException {
+        execute("open", "InAppBrowser1", URL, "_blank", "", null);
+        execute("open", "InAppBrowser2", URL, "_blank", "", null);
+
+        assertNotNull(plugin.getWindow("iab1"));
+        assertNotNull(plugin.getWindow("iab2"));
+    }
+
+    @Test
+    public void closeSendsExitAndForgetsWindow() throws JSONException {
+        execute("open", "InAppBrowser1", URL, "_blank", "", "w1");
+        execute("close", "InAppBrowser2", "w1");
+
+        assertNull(plugin.getWindow("w1"));
+        List<String> types = eventTypes("InAppBrowser1");
+        assertEquals("exit", types.get(types.size() - 1));
+        assertFalse(webView.getLastResult("InAppBrowser1").getKeepCallback());
+    }
+
+    @Test
+    public void closeWithoutIdClosesLastWindow() throws JSONException {
+        execute("open", "InAppBrowser1", URL, "_blank", "", "w1");
+        execute("open", "InAppBrowser2", URL, "_blank", "", "w2");
+        execute("close", "InAppBrowser3", (Object)null);
+
+        assertNotNull(plugin.getWindow("w1"));
+        assertNull(plugin.getWindow("w2"));
+    }
+
+    @Test
+    public void selfLoadsAllowedUrlInCordovaWebView() throws JSONException {
+        webView.allowNavigation = true;
+        execute("open", "InAppBrowser1", URL, "_self", "", "w1");
+
+        assertEquals(1, webView.loadedUrls.size());
+        assertEquals(URL, webView.loadedUrls.get(0));
+        // No window is left behind to receive the calls meant for the next one
+        assertNull(plugin.getWindow("w1"));
+        assertTrue(eventTypes("InAppBrowser1").contains("exit"));
+        execute("injectScriptCode", "InAppBrowser2", "1", false, null);
+        assertTrue(webView.getResults("InAppBrowser2").isEmpty());
+    }
+
+    @Test
+    public void selfOpensOtherUrlInWindow() throws JSONException {
+        webView.allowNavigation = false;
+        execute("open", "InAppBrowser1", URL, "_self", "", "w1");
+
+        assertTrue(webView.loadedUrls.isEmpty());
+        assertEquals(URL, shadowOf(plugin.getWindow("w1").getWebView()).getLastLoadedUrl());
+    }
+
+    @Test
+    public void rejectsUnknownAction() throws JSONException {
+        assertFalse(execute("unknown", "InAppBrowser1"));
+        assertTrue(webView.getResults("InAppBrowser1").isEmpty());
+    }
+
+    @Test
+    public void injectsScriptAsIs() throws JSONException {
+        execute("open", "InAppBrowser1", URL, "_blank", "", "w1");
+        execute("injectScriptCode", "InAppBrowser2", "document.title = 'a'", false, "w1");
+
+        WebView view = plugin.getWindow("w1").getWebView();
+        assertEquals("document.title = 'a'", shadowOf(view).getLastEvaluatedJavascript());
+    }
+
+    @Test
+    public void injectsScriptReturningResultThroughPrompt() throws JSONException {
+        execute("open", "InAppBrowser1", URL, "_blank", "", "w1");
+        execute("injectScriptCode", "InAppBrowser2", "var s = \"a\";", true, "w1");
+
+        String script = shadowOf(plugin.getWindow("w1").getWebView()).getLastEvaluatedJavascript();
+        assertEquals("prompt(JSON.stringify([eval(\"var s = \\\"a\\\";\")]), 'gap-iab://InAppBrowser2')", script);
+    }
+
+    @Test
+    public void injectsStyleIntoLastWindow() throws JSONException {
+        execute("open", "InAppBrowser1", URL, "_blank", "", "w1");
+        execute("injectStyleCode", "InAppBrowser2", "body { color: red }", false, null);
+
+        String script = shadowOf(plugin.getWindow("w1").getWebView()).getLastEvaluatedJavascript();
+        assertTrue(script, script.contains("\"body { color: red }\""));
+    }
+
+    @Test
+    public void injectsNothingIntoClosedWindow() throws JSONException {
+        execute("open", "InAppBrowser1", URL, "_blank", "", "w1");
+        WebView view = plugin.getWindow("w1").getWebView();
+        execute("close", "InAppBrowser2", "w1");
+        execute("injectScriptCode", "InAppBrowser3", "1", false, "w1");
+
+        assertFalse("1".equals(shadowOf(view).getLastEvaluatedJavascript()));
+    }
+}
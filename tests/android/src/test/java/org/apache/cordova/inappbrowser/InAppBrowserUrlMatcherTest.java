@@ -0,0 +1,102 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class InAppBrowserUrlMatcherTest {
+
+    private static InAppBrowserUrlMatcher matcher(String... patterns) {
+        return new InAppBrowserUrlMatcher(patterns);
+    }
+
+    @Test
+    public void matchesPrefixes() {
+        InAppBrowserUrlMatcher matcher = matcher("https://example.com/logout", "https://example.com/account/");
+        assertEquals("https://example.com/logout", matcher.match("https://example.com/logout?next=/"));
+        assertEquals("https://example.com/account/", matcher.match("https://example.com/account/settings"));
+        assertNull(matcher.match("https://example.com/account"));
+        assertNull(matcher.match("http://example.com/logout"));
+    }
+
+    @Test
+    public void shortestPrefixWins() {
+        InAppBrowserUrlMatcher matcher = matcher("https://example.com/a/b", "https://example.com/a");
+        assertEquals("https://example.com/a", matcher.match("https://example.com/a/b/c"));
+    }
+
+    @Test
+    public void matchesGlobs() {
+        InAppBrowserUrlMatcher matcher = matcher("https://*.example.com/*.pdf", "*/callback?code=*", "https://example.com/v?/");
+        assertEquals("https://*.example.com/*.pdf", matcher.match("https://cdn.example.com/files/a.pdf"));
+        assertNull(matcher.match("https://cdn.example.com/files/a.pdf.html"));
+        assertEquals("*/callback?code=*", matcher.match("myapp://auth/callback?code=123"));
+        assertEquals("https://example.com/v?/", matcher.match("https://example.com/v2/"));
+        assertNull(matcher.match("https://example.com/v10/"));
+    }
+
+    @Test
+    public void globsSharingALiteralPrefixAreAllTried() {
+        InAppBrowserUrlMatcher matcher = matcher("https://*/a", "https://*/b", "https://*/c");
+        assertEquals("https://*/c", matcher.match("https://example.com/c"));
+        assertNull(matcher.match("https://example.com/d"));
+    }
+
+    @Test
+    public void matchesHosts() {
+        InAppBrowserUrlMatcher matcher = matcher("host:example.com", "host:*.example.org");
+        assertEquals("host:example.com", matcher.match("https://example.com/"));
+        assertEquals("host:example.com", matcher.match("http://user@example.com:8080/path"));
+        assertNull(matcher.match("https://www.example.com/"));
+        assertEquals("host:*.example.org", matcher.match("https://a.b.example.org/x"));
+        assertNull(matcher.match("https://example.org/"));
+        assertNull(matcher.match("https://notexample.org/"));
+        assertNull(matcher.match("mailto:someone@example.com"));
+    }
+
+    @Test
+    public void schemeAndHostAreCaseInsensitive() {
+        InAppBrowserUrlMatcher matcher = matcher("HTTPS://Example.com/Logout", "https://*.Example.org/*.PDF", "host:Example.net");
+        assertEquals("HTTPS://Example.com/Logout", matcher.match("https://EXAMPLE.COM/Logout"));
+        assertNull(matcher.match("https://example.com/logout"));
+        assertEquals("https://*.Example.org/*.PDF", matcher.match("Https://CDN.example.ORG/a.PDF"));
+        assertNull(matcher.match("https://cdn.example.org/a.pdf"));
+        assertEquals("host:Example.net", matcher.match("HTTP://EXAMPLE.NET/"));
+    }
+
+    @Test
+    public void lowerCasesOnlySchemeAndHost() {
+        assertEquals("https://example.com/A?B#C", InAppBrowserUrlMatcher.lowerCaseAuthority("HTTPS://Example.COM/A?B#C"));
+        assertEquals("mailto:Someone@Example.com", InAppBrowserUrlMatcher.lowerCaseAuthority("MailTo:Someone@Example.com"));
+        assertEquals("https://example.com?Q", InAppBrowserUrlMatcher.lowerCaseAuthority("https://EXAMPLE.com?Q"));
+        String url = "https://example.com/Path";
+        assertSame(url, InAppBrowserUrlMatcher.lowerCaseAuthority(url));
+    }
+
+    @Test
+    public void ignoresEmptyPatterns() {
+        InAppBrowserUrlMatcher matcher = matcher("", null, "https://a/");
+        assertEquals(1, matcher.size());
+        assertNull(matcher("", null).match("https://a/"));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova.inappbrowser;
+
+import android.webkit.JsPromptResult;
+import android.webkit.JsResult;
+import android.webkit.WebView;
+
+import org.apache.cordova.PluginResult;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class InAppChromeClientTest {
+
+    private FakeCordovaWebView webView;
+    private InAppChromeClient client;
+    private WebView view;
+
+    @Before
+    public void setUp() {
+        webView = new FakeCordovaWebView();
+        client = new InAppChromeClient(webView);
+        view = new WebView(RuntimeEnvironment.getApplication());
+    }
+
+    private static JsPromptResult newResult() {
+        return new JsPromptResult(new JsResult.ResultReceiver() {
+            @Override
+            public void onJsResultComplete(JsResult result) {
+            }
+        });
+    }
+
+    @Test
+    public void sendsScriptResult() {
+        JsPromptResult result = newResult();
+        assertTrue(client.onJsPrompt(view, "https://example.com/", "[42]", "gap-iab://InAppBrowser7", result));
+
+        assertTrue(result.getResult());
+        PluginResult sent = webView.getLastResult("InAppBrowser7");
+        assertEquals(PluginResult.Status.OK.ordinal(), sent.getStatus());
+        assertEquals("[42]", sent.getMessage());
+    }
+
+    @Test
+    public void sendsEmptyArrayWithoutMessage() {
+        JsPromptResult result = newResult();
+        assertTrue(client.onJsPrompt(view, "https://example.com/", "", "gap-iab://InAppBrowser7", result));
+
+        assertEquals("[]", webView.getLastResult("InAppBrowser7").getMessage());
+    }
+
+    @Test
+    public void reportsInvalidJson() {
+        assertTrue(client.onJsPrompt(view, "https://example.com/", "[", "gap-iab://InAppBrowser7", newResult()));
+
+        assertEquals(PluginResult.Status.JSON_EXCEPTION.ordinal(), webView.getLastResult("InAppBrowser7").getStatus());
+    }
+
+    @Test
+    public void ignoresCallbacksOfOtherPlugins() {
+        JsPromptResult result = newResult();
+        assertFalse(client.onJsPrompt(view, "https://example.com/", "[1]", "gap-iab://Camera1", result));
+
+        assertNull(webView.getLastResult("Camera1"));
+    }
+
+    @Test
+    public void cancelsCordovaApiCalls() {
+        JsPromptResult result = newResult();
+        assertTrue(client.onJsPrompt(view, "https://example.com/", "{}", "gap:[\"Device\",\"getInfo\",\"Device1\"]", result));
+
+        assertFalse(result.getResult());
+        assertNull(webView.getLastResult("Device1"));
+    }
+
+    @Test
+    public void leavesOrdinaryPromptsToTheWebView() {
+        assertFalse(client.onJsPrompt(view, "https://example.com/", "Name?", "", newResult()));
+        assertFalse(client.onJsPrompt(view, "https://example.com/", "Name?", null, newResult()));
+    }
+
+    @Test
+    public void sendsChunksKeepingCallbackUntilLast() throws JSONException {
+        JsPromptResult first = newResult();
+        assertTrue(client.onJsPrompt(view, "https://example.com/", "[\"a", "gap-iab-chunk://0/2/InAppBrowser7", first));
+        assertTrue(first.getResult());
+        PluginResult sent = webView.getLastResult("InAppBrowser7");
+        assertTrue(sent.getKeepCallback());
+        JSONObject chunk = new JSONObject(sent.getMessage());
+        assertEquals(0, chunk.getInt("index"));
+        assertEquals(2, chunk.getInt("count"));
+        assertEquals("[\"a", chunk.getString("data"));
+
+        assertTrue(client.onJsPrompt(view, "https://example.com/", "\"]", "gap-iab-chunk://1/2/InAppBrowser7", newResult()));
+        assertFalse(webView.getLastResult("InAppBrowser7").getKeepCallback());
+    }
+
+    @Test
+    public void cancelsMalformedChunks() {
+        JsPromptResult result = newResult();
+        assertTrue(client.onJsPrompt(view, "https://example.com/", "x", "gap-iab-chunk://one/2/InAppBrowser7", result));
+
+        assertFalse(result.getResult());
+        assertNull(webView.getLastResult("InAppBrowser7"));
+    }
+}
@@ -179,14 +179,14 @@ exports.defineManualTests = function (contentEl, createActionButton) {
     }
     var hiddenwnd = null;
     var loadlistener = function (event) { alert('background window loaded '); };
-    function openHidden(url, startHidden) {
-        var shopt = (startHidden) ? 'hidden=yes' : '';
+    function openHidden(url, startHidden, prefetch) {
+        var shopt = (prefetch) ? 'prefetch=yes' : (startHidden) ? 'hidden=yes' : '';
         hiddenwnd = cordova.InAppBrowser.open(url, 'random_string', shopt);
         if (!hiddenwnd) {
             alert('cordova.InAppBrowser.open returned ' + hiddenwnd);
             return;
         }
-        if (startHidden) hiddenwnd.addEventListener('loadstop', loadlistener);
+        if (startHidden || prefetch) hiddenwnd.addEventListener('loadstop', loadlistener);
     }
     function showHidden() {
         if (!!hiddenwnd) {
@@ -309,7 +309,9 @@ exports.defineManualTests = function (contentEl, createActionButton) {
         '<p/> <div id="closeHidden"></div>' +
         'Expected result: no output. But click on "show hidden" again and nothing should be shown.' +
         '<p/> <div id="openHiddenShow"></div>' +
-        'Expected result: open successfully in InAppBrowser to https://www.google.co.uk';
+        'Expected result: open successfully in InAppBrowser to https://www.google.co.uk' +
+        '<p/> <div id="openPrefetch"></div>' +
+        'Expected result: no additional browser window. Alert appears with the text "background window loaded". On Android, "show hidden" then shows the loaded page at once.';
 
     var clearing_cache_tests = '<h1>Clearing Cache</h1>' +
         '<div id="openClearCache"></div>' +
@@ -494,6 +496,9 @@ exports.defineManualTests = function (contentEl, createActionButton) {
     createActionButton('google.co.uk Not Hidden', function () {
         openHidden('https://www.google.co.uk', false);
     }, 'openHiddenShow');
+    createActionButton('Create Prefetched', function () {
+        openHidden('https://www.google.co.uk', false, true);
+    }, 'openPrefetch');
 
     //Clearing cache
     createActionButton('Clear Browser Cache', function () {
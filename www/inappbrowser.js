@@ -30,26 +30,36 @@ var channel = require('cordova/channel');
 var modulemapper = require('cordova/modulemapper');
 var urlutil = require('cordova/urlutil');
 
+var windowCounter = 0;
+
 function InAppBrowser() {
+   this.windowId = 'iab' + (++windowCounter);
    this.channels = {
         'loadstart': channel.create('loadstart'),
         'loadstop' : channel.create('loadstop'),
         'loaderror' : channel.create('loaderror'),
+        'intercept' : channel.create('intercept'),
+        'metrics' : channel.create('metrics'),
+        'memorywarning' : channel.create('memorywarning'),
         'exit' : channel.create('exit')
    };
 }
 
 InAppBrowser.prototype = {
     _eventHandler: function (event) {
-        if (event && (event.type in this.channels)) {
+        if (Array.isArray(event)) {
+            for (var i = 0; i < event.length; i++) {
+                this._eventHandler(event[i]);
+            }
+        } else if (event && (event.type in this.channels)) {
             this.channels[event.type].fire(event);
         }
     },
     close: function (eventname) {
-        exec(null, null, "InAppBrowser", "close", []);
+        exec(null, null, "InAppBrowser", "close", [this.windowId]);
     },
     show: function (eventname) {
-      exec(null, null, "InAppBrowser", "show", []);
+      exec(null, null, "InAppBrowser", "show", [this.windowId]);
     },
     addEventListener: function (eventname,f) {
         if (eventname in this.channels) {
@@ -63,27 +73,60 @@ InAppBrowser.prototype = {
     },
 
     executeScript: function(injectDetails, cb) {
-        if (injectDetails.code) {
-            exec(cb, null, "InAppBrowser", "injectScriptCode", [injectDetails.code, !!cb]);
+        if (injectDetails.code && injectDetails.stream) {
+            var chunks = [];
+            var onchunk = injectDetails.onchunk;
+            var win = function(chunk) {
+                if (onchunk) {
+                    onchunk(chunk);
+                } else {
+                    chunks[chunk.index] = chunk.data;
+                }
+                if (chunk.index === chunk.count - 1 && cb) {
+                    if (onchunk) {
+                        cb();
+                    } else {
+                        cb(JSON.parse(chunks.join('')));
+                    }
+                }
+            };
+            exec(win, null, "InAppBrowser", "injectScriptCodeStream", [injectDetails.code, injectDetails.chunkSize || 0, this.windowId]);
+        } else if (injectDetails.code) {
+            exec(cb, null, "InAppBrowser", "injectScriptCode", [injectDetails.code, !!cb, this.windowId]);
         } else if (injectDetails.file) {
-            exec(cb, null, "InAppBrowser", "injectScriptFile", [injectDetails.file, !!cb]);
+            exec(cb, null, "InAppBrowser", "injectScriptFile", [injectDetails.file, !!cb, this.windowId]);
+        } else if (injectDetails.registered) {
+            exec(cb, null, "InAppBrowser", "injectRegisteredScript", [injectDetails.registered, !!cb, this.windowId]);
         } else {
-            throw new Error('executeScript requires exactly one of code or file to be specified');
+            throw new Error('executeScript requires exactly one of code, file or registered to be specified');
         }
     },
 
     insertCSS: function(injectDetails, cb) {
         if (injectDetails.code) {
-            exec(cb, null, "InAppBrowser", "injectStyleCode", [injectDetails.code, !!cb]);
+            exec(cb, null, "InAppBrowser", "injectStyleCode", [injectDetails.code, !!cb, this.windowId]);
         } else if (injectDetails.file) {
-            exec(cb, null, "InAppBrowser", "injectStyleFile", [injectDetails.file, !!cb]);
+            exec(cb, null, "InAppBrowser", "injectStyleFile", [injectDetails.file, !!cb, this.windowId]);
         } else {
             throw new Error('insertCSS requires exactly one of code or file to be specified');
         }
+    },
+
+    injectBatch: function(entries, cb) {
+        var batch = entries.map(function (entry) {
+            if (entry.type !== 'script' && entry.type !== 'style') {
+                throw new Error('injectBatch entries must have a type of script or style');
+            }
+            if (!entry.code === !entry.file) {
+                throw new Error('injectBatch entries require exactly one of code or file to be specified');
+            }
+            return entry.code ? { type: entry.type, code: entry.code } : { type: entry.type, file: entry.file };
+        });
+        exec(cb, null, "InAppBrowser", "injectBatch", [batch, !!cb, this.windowId]);
     }
 };
 
-module.exports = function(strUrl, strWindowName, strWindowFeatures, callbacks) {
+module.exports = function(strUrl, strWindowName, strWindowFeatures, callbacks, interceptPatterns) {
     // Don't catch calls that write to existing frames (e.g. named iframes).
     if (window.frames && window.frames[strWindowName]) {
         var origOpenFunc = modulemapper.getOriginalSymbol(window, 'open');
@@ -104,7 +147,32 @@ module.exports = function(strUrl, strWindowName, strWindowFeatures, callbacks) {
 
     strWindowFeatures = strWindowFeatures || "";
 
-    exec(cb, cb, "InAppBrowser", "open", [strUrl, strWindowName, strWindowFeatures]);
+    exec(cb, cb, "InAppBrowser", "open", [strUrl, strWindowName, strWindowFeatures, iab.windowId, interceptPatterns || null, Date.now()]);
     return iab;
 };
 
+// Operations shared by every window, which are merged into cordova.InAppBrowser
+module.exports.getMetrics = function(cb) {
+    exec(cb, null, "InAppBrowser", "getMetrics", []);
+};
+
+module.exports.getCacheStats = function(cb) {
+    exec(cb, null, "InAppBrowser", "getCacheStats", []);
+};
+
+module.exports.swapAssetPack = function(path, origins, success, error) {
+    exec(success, error, "InAppBrowser", "swapAssetPack", [path, origins || null]);
+};
+
+module.exports.setCookies = function(url, cookies, success, error) {
+    exec(success, error, "InAppBrowser", "setCookies", [url, cookies]);
+};
+
+module.exports.registerScript = function(name, code, success, error) {
+    exec(success, error, "InAppBrowser", "registerScript", [name, code]);
+};
+
+module.exports.unregisterScript = function(name, cb) {
+    exec(cb, null, "InAppBrowser", "unregisterScript", [name]);
+};
+